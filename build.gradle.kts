@@ -1,12 +1,13 @@
 plugins {
 	java
-	id("org.springframework.boot") version "3.0.4"
-	id("io.spring.dependency-management") version "1.1.0"
+	id("org.springframework.boot") version "3.2.5"
+	id("io.spring.dependency-management") version "1.1.4"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.testapp"
 version = "0.0.1-SNAPSHOT"
-java.sourceCompatibility = JavaVersion.VERSION_17
+java.sourceCompatibility = JavaVersion.VERSION_21
 
 configurations {
 	compileOnly {
@@ -23,13 +24,33 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.postgresql:postgresql")
+	implementation("org.flywaydb:flyway-core")
 	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+	implementation("io.micrometer:micrometer-tracing-bridge-otel")
+	implementation("io.opentelemetry:opentelemetry-exporter-otlp")
+	implementation("net.ttddyy.observation:datasource-micrometer-spring-boot:1.0.3")
 	implementation("org.springframework:spring-webflux")
-	implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.0.4")
+	implementation("io.projectreactor.netty:reactor-netty-http")
+	implementation("io.github.resilience4j:resilience4j-spring-boot3:2.2.0")
+	implementation("io.github.resilience4j:resilience4j-reactor:2.2.0")
+	implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.5.0")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
+	implementation("org.springframework.boot:spring-boot-starter-cache")
+	implementation("com.github.ben-manes.caffeine:caffeine")
+	implementation("org.hibernate.orm:hibernate-jcache")
+	implementation("com.github.ben-manes.caffeine:jcache")
 	compileOnly("org.projectlombok:lombok")
 	developmentOnly("org.springframework.boot:spring-boot-devtools")
 	annotationProcessor("org.projectlombok:lombok")
+	testImplementation("org.springframework.boot:spring-boot-starter-test")
+	testImplementation("io.opentelemetry:opentelemetry-sdk-testing")
+	testImplementation("org.springframework.boot:spring-boot-testcontainers")
+	testImplementation("org.testcontainers:junit-jupiter")
+	testImplementation("org.testcontainers:postgresql")
+	testRuntimeOnly("com.h2database:h2")
+	jmh("com.h2database:h2")
+	jmh("org.mockito:mockito-core")
 }
 
 tasks.register<Copy>("copyJar") {
@@ -40,6 +61,34 @@ tasks.register<Copy>("copyJar") {
 
 tasks.named("build") { finalizedBy("copyJar") }
 
-//tasks.withType<Test> {
-//	useJUnitPlatform()
-//}
+tasks.withType<Test> {
+	useJUnitPlatform()
+}
+
+// End to end load test, runs the MS against StubUpstreamServer of the test sources and H2
+val loadTest by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+	runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.testRuntimeOnly.get())
+
+// ./gradlew loadTest -Dloadtest.concurrency=200 --args="--spring.profiles.active=prod"
+tasks.register<JavaExec>("loadTest") {
+	group = "verification"
+	description = "Runs the MS against a local external API stub and reports latency per endpoint"
+	classpath = loadTest.runtimeClasspath
+	mainClass.set("com.testapp.bemsposts.LoadTest")
+	systemProperties(System.getProperties()
+		.filterKeys { it.toString().startsWith("loadtest.") }
+		.mapKeys { it.key.toString() })
+}
+
+// ./gradlew jmh -Pjmh.includes=MergePosts runs a single benchmark class
+jmh {
+	warmupIterations.set(2)
+	iterations.set(5)
+	fork.set(1)
+	(findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
@@ -0,0 +1,64 @@
+package com.testapp.bemsposts.models;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Post JSON as the controllers write it and as ExternalAPIServiceImpl reads it from external API:
+// a single post and a page of posts, with titles and bodies of jsonplaceholder-like length.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostJsonBenchmark {
+  @Param({"1", "100"})
+  private int posts;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private List<Post> page;
+  private String pageJson;
+  private Post post;
+  private String postJson;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    page = new ArrayList<>();
+    for (int id = 1; id <= posts; id++) {
+      page.add(new Post(id, 1, "sunt aut facere repellat provident occaecati " + id,
+          "quia et suscipit suscipit recusandae consequuntur expedita et cum reprehenderit "
+              + "molestiae ut ut quas totam nostrum rerum est autem sunt rem eveniet " + id));
+    }
+    pageJson = objectMapper.writeValueAsString(page);
+    post = page.get(0);
+    postJson = objectMapper.writeValueAsString(post);
+  }
+
+  @Benchmark
+  public String serializePost() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(post);
+  }
+
+  @Benchmark
+  public Post deserializePost() throws JsonProcessingException {
+    return objectMapper.readValue(postJson, Post.class);
+  }
+
+  @Benchmark
+  public String serializePage() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(page);
+  }
+
+  @Benchmark
+  public Post[] deserializePage() throws JsonProcessingException {
+    return objectMapper.readValue(pageJson, Post[].class);
+  }
+}
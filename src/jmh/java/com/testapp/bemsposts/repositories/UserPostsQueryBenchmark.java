@@ -0,0 +1,103 @@
+package com.testapp.bemsposts.repositories;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// First page of GET /posts?userId= on the schema of the Flyway migrations, with and without the
+// (user_id, id) index, in H2 in PostgreSQL mode. The posts of a user are spread over the whole
+// table, as posts of many users arriving over time would be.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx4g")
+public class UserPostsQueryBenchmark {
+  private static final int USERS = 10_000;
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"2000000"})
+  private int posts;
+
+  @Param({"true", "false"})
+  private boolean indexed;
+
+  private Connection connection;
+  private PreparedStatement pageQuery;
+
+  @Setup
+  public void setUp() throws SQLException {
+    String url = "jdbc:h2:mem:posts;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    Flyway.configure().dataSource(url, "sa", "").load().migrate();
+    connection = DriverManager.getConnection(url, "sa", "");
+    if (!indexed) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("drop index posts_user_id_id_idx");
+      }
+    }
+    seed();
+    pageQuery = connection.prepareStatement("select id, user_id, title, body, version from posts"
+        + " where user_id = ? and id > ? order by id limit ?");
+  }
+
+  private void seed() throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement insert = connection.prepareStatement(
+        "insert into posts (id, user_id, title, body) values (?, ?, ?, ?)")) {
+      for (int id = 1; id <= posts; id++) {
+        insert.setInt(1, id);
+        insert.setInt(2, (id - 1) % USERS + 1);
+        insert.setString(3, "title " + id);
+        insert.setString(4, "body " + id);
+        insert.addBatch();
+        if (id % 10_000 == 0) {
+          insert.executeBatch();
+          connection.commit();
+        }
+      }
+      insert.executeBatch();
+      connection.commit();
+    }
+    connection.setAutoCommit(true);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("analyze");
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("drop all objects");
+    }
+    connection.close();
+  }
+
+  @Benchmark
+  public int firstPageOfUser() throws SQLException {
+    pageQuery.setInt(1, ThreadLocalRandom.current().nextInt(USERS) + 1);
+    pageQuery.setInt(2, 0);
+    pageQuery.setInt(3, PAGE_SIZE);
+    int rows = 0;
+    try (ResultSet resultSet = pageQuery.executeQuery()) {
+      while (resultSet.next()) {
+        rows++;
+      }
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,61 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.Post;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Internal posts hold every second id of the user, external posts hold all of them, so half of
+// the external posts are duplicates that the merge has to drop.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MergePostsBenchmark {
+  @Param({"10", "100", "1000", "10000"})
+  private int externalPosts;
+
+  private List<Post> internal;
+  private List<Post> external;
+
+  @Setup
+  public void setUp() {
+    internal = new ArrayList<>();
+    external = new ArrayList<>();
+    for (int id = 1; id <= externalPosts; id++) {
+      Post post = new Post(id, 1, "title " + id, "body " + id);
+      external.add(post);
+      if (id % 2 == 0) {
+        internal.add(post);
+      }
+    }
+  }
+
+  @Benchmark
+  public List<Post> sortedMerge() {
+    return PostMerger.merge(internal, external);
+  }
+
+  // Previous implementation: list of boxed ids and List.contains for every external post
+  @Benchmark
+  public List<Post> listContainsMerge() {
+    List<Post> internalPosts = new ArrayList<>(internal);
+    List<Integer> internalPostIds = new ArrayList<>();
+    for (Post element : internalPosts) {
+      internalPostIds.add(element.getId());
+    }
+    for (Post element : external) {
+      if (!internalPostIds.contains(element.getId())) {
+        internalPosts.add(element);
+      }
+    }
+    return internalPosts;
+  }
+}
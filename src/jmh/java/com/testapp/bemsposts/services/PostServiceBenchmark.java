@@ -0,0 +1,106 @@
+package com.testapp.bemsposts.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// PostServiceImpl with DB and external API mocked, answering right away, so only the work of the
+// service itself is measured: cache lookups, coalescing, merging, metrics. Mockito adds about the
+// same small cost to every variant.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostServiceBenchmark {
+  private static final int USER_ID = 1;
+  private static final int EXTERNAL_POSTS = 100;
+
+  private PostServiceImpl cachedPostService;
+  private PostServiceImpl uncachedPostService;
+  private PostDTO newPost;
+
+  @Setup
+  public void setUp() {
+    List<Post> external = new ArrayList<>();
+    List<Post> internal = new ArrayList<>();
+    for (int id = 1; id <= EXTERNAL_POSTS; id++) {
+      Post post = new Post(id, USER_ID, "title " + id, "body " + id);
+      external.add(post);
+      if (id % 2 == 0) {
+        internal.add(post);
+      }
+    }
+
+    PostRepository postRepository = mock(PostRepository.class);
+    when(postRepository.findById(anyInt()))
+        .thenAnswer(invocation -> Optional.of(external.get(0)));
+    when(postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(any(), any(), any()))
+        .thenReturn(internal);
+    when(postRepository.saveAllFromExternalAPI(any()))
+        .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Post>>getArgument(0)));
+
+    ExternalAPIService externalAPIService = mock(ExternalAPIService.class);
+    when(externalAPIService.validateUserId(any())).thenReturn(Mono.empty());
+    when(externalAPIService.findPostsByUserId(any())).thenReturn(Flux.fromIterable(external));
+    when(externalAPIService.savePost(any()))
+        .thenReturn(Mono.just(new Post(EXTERNAL_POSTS + 1, USER_ID, "title", "body")));
+
+    cachedPostService = new PostServiceImpl(postRepository, externalAPIService,
+        mock(PostOutboxService.class), mock(PostSyncService.class),
+        new ConcurrentMapCacheManager(), new LocalPostInvalidationBus(),
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), PostWriteMode.SYNC,
+        Duration.ofSeconds(5), 1000);
+    cachedPostService.findById(1);
+    uncachedPostService = new PostServiceImpl(postRepository, externalAPIService,
+        mock(PostOutboxService.class), mock(PostSyncService.class),
+        new NoOpCacheManager(), new LocalPostInvalidationBus(),
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), PostWriteMode.SYNC,
+        Duration.ofSeconds(5), 1000);
+    newPost = new PostDTO(USER_ID, "title", "body");
+  }
+
+  @Benchmark
+  public Post findByIdFromCache() {
+    return cachedPostService.findById(1);
+  }
+
+  @Benchmark
+  public Post findByIdFromDb() {
+    return uncachedPostService.findById(1);
+  }
+
+  @Benchmark
+  public PostListDTO findPostsByUserId() {
+    return uncachedPostService.findPostsByUserId(USER_ID, null, EXTERNAL_POSTS);
+  }
+
+  @Benchmark
+  public Post addPost() {
+    return uncachedPostService.addPost(newPost);
+  }
+}
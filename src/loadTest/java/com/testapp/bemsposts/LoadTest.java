@@ -0,0 +1,232 @@
+package com.testapp.bemsposts;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// =========================================================
+// *** End to end load test against a local external API ***
+// =========================================================
+// Starts StubUpstreamServer and the MS on an in-memory H2 DB in PostgreSQL mode, drives a fixed
+// mix of requests from loadtest.concurrency clients and prints throughput and latency percentiles
+// per endpoint. Arguments are passed to the MS, e.g. --spring.profiles.active=prod.
+//
+//   ./gradlew loadTest -Dloadtest.concurrency=200 -Dloadtest.upstream-latency=100ms
+public class LoadTest {
+  private static final int USERS = StubUpstreamServer.USERS;
+  private static final int POSTS = StubUpstreamServer.USERS * StubUpstreamServer.POSTS_PER_USER;
+
+  private final int concurrency = Integer.getInteger("loadtest.concurrency", 50);
+  private final Duration warmUp = duration("loadtest.warm-up", "5s");
+  private final Duration duration = duration("loadtest.duration", "10s");
+  private final Duration upstreamLatency = duration("loadtest.upstream-latency", "5ms");
+  private final double upstreamErrorRate =
+      Double.parseDouble(System.getProperty("loadtest.upstream-error-rate", "0"));
+
+  private final HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+  private String baseUrl;
+
+  public static void main(String[] args) throws Exception {
+    new LoadTest().run(args);
+  }
+
+  private static Duration duration(String property, String defaultValue) {
+    return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+  }
+
+  private void run(String[] args) throws Exception {
+    try (StubUpstreamServer upstream = StubUpstreamServer.start()) {
+      upstream.setLatency(upstreamLatency);
+      upstream.setErrorRate(upstreamErrorRate);
+      try (ConfigurableApplicationContext context = startApplication(upstream, args)) {
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        Map<Endpoint, List<Long>> latencies = drive();
+        report(latencies);
+      }
+    }
+  }
+
+  private ConfigurableApplicationContext startApplication(StubUpstreamServer upstream,
+                                                          String[] args) {
+    Map<String, Object> properties = new LinkedHashMap<>();
+    properties.put("server.port", 0);
+    properties.put("APIURL", upstream.baseUrl());
+    properties.put("spring.datasource.url",
+        "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+    properties.put("spring.datasource.username", "sa");
+    properties.put("spring.datasource.password", "");
+    properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+    properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+    // a single instance on H2, nobody to notify
+    properties.put("posts.cache.invalidation", "local");
+    // all clients connect from the loopback address, each is told apart by its X-Client-Id
+    properties.put("posts.admission.trusted-proxies", "127.0.0.1,0:0:0:0:0:0:0:1");
+    // passed as command line arguments, so they win over application.properties and the profiles
+    List<String> arguments = new ArrayList<>();
+    properties.forEach((name, value) -> arguments.add("--" + name + "=" + value));
+    arguments.addAll(Arrays.asList(args));
+    return new SpringApplicationBuilder(BeMsPostsApplication.class)
+        .run(arguments.toArray(String[]::new));
+  }
+
+  // -------------------------------
+  // *** Request mix and clients ***
+  // -------------------------------
+  enum Endpoint {
+    POSTS_BY_USER_ID("GET /posts?userId=", 60),
+    POST_BY_ID("GET /posts/{id}", 25),
+    UPDATE_POST("PUT /posts/{id}", 5),
+    ADD_POST("POST /posts", 5),
+    EXPORT("GET /posts/export?userId=", 5);
+
+    private final String label;
+    private final int weight;
+
+    Endpoint(String label, int weight) {
+      this.label = label;
+      this.weight = weight;
+    }
+
+    static Endpoint pick() {
+      int total = Arrays.stream(values()).mapToInt(endpoint -> endpoint.weight).sum();
+      int roll = ThreadLocalRandom.current().nextInt(total);
+      for (Endpoint endpoint : values()) {
+        roll -= endpoint.weight;
+        if (roll < 0) {
+          return endpoint;
+        }
+      }
+      throw new IllegalStateException();
+    }
+  }
+
+  // every client is rate limited on its own (posts.admission.client-header)
+  private HttpRequest request(Endpoint endpoint, String clientId) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int userId = random.nextInt(USERS) + 1;
+    int id = random.nextInt(POSTS) + 1;
+    HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30))
+        .header("X-Client-Id", clientId);
+    return switch (endpoint) {
+      case POSTS_BY_USER_ID -> builder.uri(uri("/posts?limit=20&userId=" + userId)).GET().build();
+      case POST_BY_ID -> builder.uri(uri("/posts/" + id))
+          .header("Accept", "application/json").GET().build();
+      case UPDATE_POST -> builder.uri(uri("/posts/" + id))
+          .header("Content-Type", "application/json")
+          .PUT(HttpRequest.BodyPublishers.ofString("{\"title\":\"load test " + id + "\"}"))
+          .build();
+      case ADD_POST -> builder.uri(uri("/posts"))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(
+              "{\"userId\":" + userId + ",\"title\":\"load test\",\"body\":\"load test\"}"))
+          .build();
+      case EXPORT -> builder.uri(uri("/posts/export?userId=" + userId)).GET().build();
+    };
+  }
+
+  private URI uri(String pathAndQuery) {
+    return URI.create(baseUrl + pathAndQuery);
+  }
+
+  // Every client sends its next request as soon as the previous one is answered. Requests started
+  // during the warm-up aren't recorded, failed requests are recorded with a negative latency.
+  private Map<Endpoint, List<Long>> drive() throws Exception {
+    long measureFrom = System.nanoTime() + warmUp.toNanos();
+    long measureUntil = measureFrom + duration.toNanos();
+    List<Future<Map<Endpoint, List<Long>>>> clients = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int client = 0; client < concurrency; client++) {
+        String clientId = "loadtest-" + client;
+        clients.add(executor.submit(() -> runClient(clientId, measureFrom, measureUntil)));
+      }
+    }
+    Map<Endpoint, List<Long>> latencies = new LinkedHashMap<>();
+    for (Future<Map<Endpoint, List<Long>>> client : clients) {
+      client.get().forEach((endpoint, clientLatencies) ->
+          latencies.computeIfAbsent(endpoint, key -> new ArrayList<>()).addAll(clientLatencies));
+    }
+    return latencies;
+  }
+
+  private Map<Endpoint, List<Long>> runClient(String clientId, long measureFrom,
+                                              long measureUntil) {
+    Map<Endpoint, List<Long>> latencies = new LinkedHashMap<>();
+    long start;
+    while ((start = System.nanoTime()) < measureUntil) {
+      Endpoint endpoint = Endpoint.pick();
+      boolean ok;
+      try {
+        HttpResponse<Void> response =
+            httpClient.send(request(endpoint, clientId), HttpResponse.BodyHandlers.discarding());
+        ok = response.statusCode() < 400;
+      } catch (IOException exception) {
+        ok = false;
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      long latency = System.nanoTime() - start;
+      if (start >= measureFrom) {
+        latencies.computeIfAbsent(endpoint, key -> new ArrayList<>()).add(ok ? latency : -latency);
+      }
+    }
+    return latencies;
+  }
+
+  // --------------
+  // *** Report ***
+  // --------------
+  private void report(Map<Endpoint, List<Long>> latencies) {
+    double seconds = duration.toNanos() / 1e9;
+    System.out.printf("%n%d clients, %s after %s warm-up, external API latency %s, error rate %.2f%n%n",
+        concurrency, duration, warmUp, upstreamLatency, upstreamErrorRate);
+    System.out.println("| Endpoint                   | Requests | Errors | Throughput   | p50      | p95      | p99      | max      |");
+    System.out.println("|----------------------------|----------|--------|--------------|----------|----------|----------|----------|");
+    List<Long> all = new ArrayList<>();
+    for (Endpoint endpoint : Endpoint.values()) {
+      List<Long> endpointLatencies = latencies.getOrDefault(endpoint, List.of());
+      all.addAll(endpointLatencies);
+      printRow(endpoint.label, endpointLatencies, seconds);
+    }
+    printRow("all", all, seconds);
+  }
+
+  private static void printRow(String label, List<Long> latencies, double seconds) {
+    long errors = latencies.stream().filter(latency -> latency < 0).count();
+    long[] sorted = latencies.stream().mapToLong(Math::abs).sorted().toArray();
+    System.out.printf("| %-26s | %8d | %6d | %6.0f req/s | %s | %s | %s | %s |%n",
+        label, sorted.length, errors, sorted.length / seconds,
+        millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+        millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1.0)));
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, index)];
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%5.1f ms", nanos / 1e6);
+  }
+}
@@ -0,0 +1,87 @@
+package com.testapp.bemsposts.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testapp.bemsposts.controllers.PostAdmissionFilter;
+import com.testapp.bemsposts.services.AdaptiveConcurrencyLimit;
+import com.testapp.bemsposts.services.ClientRateLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// ===================================
+// *** Admission control of /posts ***
+// ===================================
+// Limits are published as posts.admission.* gauges and, with the rejection counts, on
+// /actuator/admission. The filter runs after the observation filter, so rejected requests still
+// show up in http.server.requests.
+@Configuration
+@ConditionalOnProperty(name = "posts.admission.enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+  @Bean
+  public ClientRateLimiter clientRateLimiter(
+      MeterRegistry meterRegistry,
+      @Value("${posts.admission.rate-limit.requests-per-second}") double requestsPerSecond,
+      @Value("${posts.admission.rate-limit.burst}") int burst,
+      @Value("${posts.admission.rate-limit.max-clients}") int maxClients
+  ) {
+    ClientRateLimiter clientRateLimiter =
+        new ClientRateLimiter(requestsPerSecond, burst, maxClients);
+    Gauge.builder("posts.admission.clients", clientRateLimiter, ClientRateLimiter::clients)
+        .description("Clients with a token bucket")
+        .register(meterRegistry);
+    return clientRateLimiter;
+  }
+
+  @Bean
+  public AdaptiveConcurrencyLimit adaptiveConcurrencyLimit(
+      MeterRegistry meterRegistry,
+      @Value("${posts.admission.concurrency.initial-limit}") int initialLimit,
+      @Value("${posts.admission.concurrency.min-limit}") int minLimit,
+      @Value("${posts.admission.concurrency.max-limit}") int maxLimit,
+      @Value("${posts.admission.concurrency.window-size}") int windowSize
+  ) {
+    AdaptiveConcurrencyLimit concurrencyLimit =
+        new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, windowSize);
+    Gauge.builder("posts.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+        .description("Concurrent requests admitted to /posts")
+        .register(meterRegistry);
+    Gauge.builder("posts.admission.in-flight", concurrencyLimit,
+            AdaptiveConcurrencyLimit::getInFlight)
+        .description("Requests to /posts in progress")
+        .register(meterRegistry);
+    return concurrencyLimit;
+  }
+
+  @Bean
+  public FilterRegistrationBean<PostAdmissionFilter> postAdmissionFilter(
+      ClientRateLimiter clientRateLimiter,
+      AdaptiveConcurrencyLimit adaptiveConcurrencyLimit,
+      MeterRegistry meterRegistry,
+      ObjectMapper objectMapper,
+      @Value("${posts.admission.client-header}") String clientHeader,
+      @Value("${posts.admission.trusted-proxies}") Set<String> trustedProxies
+  ) {
+    FilterRegistrationBean<PostAdmissionFilter> registration = new FilterRegistrationBean<>(
+        new PostAdmissionFilter(clientRateLimiter, adaptiveConcurrencyLimit, clientHeader,
+            trustedProxies, meterRegistry, objectMapper));
+    registration.addUrlPatterns("/posts", "/posts/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    return registration;
+  }
+
+  @Bean
+  public AdmissionEndpoint admissionEndpoint(
+      ClientRateLimiter clientRateLimiter,
+      AdaptiveConcurrencyLimit adaptiveConcurrencyLimit,
+      MeterRegistry meterRegistry
+  ) {
+    return new AdmissionEndpoint(clientRateLimiter, adaptiveConcurrencyLimit, meterRegistry);
+  }
+}
@@ -0,0 +1,50 @@
+package com.testapp.bemsposts.configurations;
+
+import com.testapp.bemsposts.controllers.PostAdmissionFilter;
+import com.testapp.bemsposts.services.AdaptiveConcurrencyLimit;
+import com.testapp.bemsposts.services.ClientRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+// *** Live admission limits on /actuator/admission ***
+@Endpoint(id = "admission")
+public class AdmissionEndpoint {
+  private final ClientRateLimiter clientRateLimiter;
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+  private final MeterRegistry meterRegistry;
+
+  public AdmissionEndpoint(
+      ClientRateLimiter clientRateLimiter,
+      AdaptiveConcurrencyLimit concurrencyLimit,
+      MeterRegistry meterRegistry
+  ) {
+    this.clientRateLimiter = clientRateLimiter;
+    this.concurrencyLimit = concurrencyLimit;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @ReadOperation
+  public Map<String, Object> admission() {
+    Map<String, Object> admission = new LinkedHashMap<>();
+    admission.put("limit", concurrencyLimit.getLimit());
+    admission.put("inFlight", concurrencyLimit.getInFlight());
+    admission.put("shortRttMillis", concurrencyLimit.getShortRttMillis());
+    admission.put("longRttMillis", concurrencyLimit.getLongRttMillis());
+    admission.put("clients", clientRateLimiter.clients());
+    admission.put("rejected", Map.of(
+        "rate-limit", rejected("rate-limit"),
+        "concurrency", rejected("concurrency")));
+    return admission;
+  }
+
+  private double rejected(String reason) {
+    Counter counter = meterRegistry.find(PostAdmissionFilter.REJECTED_COUNTER)
+        .tag("reason", reason)
+        .counter();
+    return counter == null ? 0 : counter.count();
+  }
+}
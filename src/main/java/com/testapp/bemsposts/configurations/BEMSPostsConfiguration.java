@@ -1,22 +1,84 @@
 package com.testapp.bemsposts.configurations;
 
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class BEMSPostsConfiguration {
   @Value("#{environment.APIURL}")
   private String apiURL;
 
+  @Value("${posts.external-api.pool.max-connections}")
+  private int maxConnections;
+
+  @Value("${posts.external-api.pool.pending-acquire-max-count}")
+  private int pendingAcquireMaxCount;
+
+  @Value("${posts.external-api.pool.pending-acquire-timeout}")
+  private Duration pendingAcquireTimeout;
+
+  @Value("${posts.external-api.pool.max-idle-time}")
+  private Duration maxIdleTime;
+
+  @Value("${posts.external-api.pool.max-life-time}")
+  private Duration maxLifeTime;
+
+  @Value("${posts.external-api.connect-timeout}")
+  private Duration connectTimeout;
+
+  @Value("${posts.external-api.response-timeout}")
+  private Duration responseTimeout;
+
+  @Value("${posts.external-api.compression}")
+  private boolean compression;
+
+  @Value("${posts.external-api.http2}")
+  private boolean http2;
+
+  // Idle connections are closed before the upstream drops them, so a reused keep-alive connection
+  // is not reset under our feet. Pool gauges are published as reactor.netty.connection.provider.*
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider upstreamConnectionProvider() {
+    return ConnectionProvider.builder("upstream")
+        .maxConnections(maxConnections)
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(maxIdleTime)
+        .maxLifeTime(maxLifeTime)
+        .evictInBackground(maxIdleTime)
+        .metrics(true)
+        .build();
+  }
+
+  // The Boot provided builder keeps the http.client.requests observation of upstream calls. The
+  // response timeout limits the time between reads while a response is awaited or read, it is
+  // armed per request, so it doesn't fire on a pooled connection sitting idle.
   @Bean
-  public WebClient defaultWebClient() {
-    return WebClient.builder()
+  public WebClient defaultWebClient(
+      WebClient.Builder webClientBuilder, ConnectionProvider upstreamConnectionProvider) {
+    HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        .responseTimeout(responseTimeout)
+        .compress(compression);
+    if (http2) {
+      // HTTP/2 is negotiated over TLS, plain HTTP and older upstreams stay on HTTP/1.1
+      httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+    }
+    return webClientBuilder
         .baseUrl(apiURL)
         .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
         .build();
   }
 }
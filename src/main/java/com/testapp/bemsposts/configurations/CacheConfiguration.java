@@ -0,0 +1,56 @@
+package com.testapp.bemsposts.configurations;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfiguration {
+  public static final String POSTS_CACHE = "posts";
+  public static final String KNOWN_USERS_CACHE = "knownUsers";
+  public static final String UNKNOWN_USERS_CACHE = "unknownUsers";
+
+  @Value("${posts.cache.posts.maximum-size}")
+  private long postsMaximumSize;
+
+  @Value("${posts.cache.posts.expire-after-write}")
+  private Duration postsExpireAfterWrite;
+
+  @Value("${posts.cache.known-users.maximum-size}")
+  private long knownUsersMaximumSize;
+
+  @Value("${posts.cache.known-users.expire-after-write}")
+  private Duration knownUsersExpireAfterWrite;
+
+  @Value("${posts.cache.unknown-users.maximum-size}")
+  private long unknownUsersMaximumSize;
+
+  @Value("${posts.cache.unknown-users.expire-after-write}")
+  private Duration unknownUsersExpireAfterWrite;
+
+  // Caches are registered up front, so actuator binds their hit/miss/eviction metrics at startup
+  @Bean
+  public CacheManager cacheManager() {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    cacheManager.registerCustomCache(POSTS_CACHE, Caffeine.newBuilder()
+        .maximumSize(postsMaximumSize)
+        .expireAfterWrite(postsExpireAfterWrite)
+        .recordStats()
+        .build());
+    cacheManager.registerCustomCache(KNOWN_USERS_CACHE, Caffeine.newBuilder()
+        .maximumSize(knownUsersMaximumSize)
+        .expireAfterWrite(knownUsersExpireAfterWrite)
+        .recordStats()
+        .build());
+    cacheManager.registerCustomCache(UNKNOWN_USERS_CACHE, Caffeine.newBuilder()
+        .maximumSize(unknownUsersMaximumSize)
+        .expireAfterWrite(unknownUsersExpireAfterWrite)
+        .recordStats()
+        .build());
+    return cacheManager;
+  }
+}
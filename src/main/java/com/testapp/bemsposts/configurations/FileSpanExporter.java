@@ -0,0 +1,83 @@
+package com.testapp.bemsposts.configurations;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+// ====================================
+// *** Finished spans as text lines ***
+// ====================================
+// One line per span appended to a local file, for a single instance or a load test run without a
+// collector. Lines of one request share the traceId, so a slow request is found with grep and sort.
+@Slf4j
+public class FileSpanExporter implements SpanExporter {
+  private final BufferedWriter writer;
+  private boolean closed;
+
+  public FileSpanExporter(Path file) throws IOException {
+    this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+    if (closed) {
+      return CompletableResultCode.ofFailure();
+    }
+    try {
+      for (SpanData span : spans) {
+        writer.write(line(span));
+        writer.newLine();
+      }
+      writer.flush();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException exception) {
+      log.warn("Writing {} spans failed: {}", spans.size(), exception.getMessage());
+      return CompletableResultCode.ofFailure();
+    }
+  }
+
+  static String line(SpanData span) {
+    long durationMicros =
+        TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos());
+    return "traceId=" + span.getTraceId()
+        + " spanId=" + span.getSpanId()
+        + " parentId=" + span.getParentSpanId()
+        + " name=\"" + span.getName() + "\""
+        + " kind=" + span.getKind()
+        + " start=" + Instant.ofEpochSecond(0, span.getStartEpochNanos())
+        + " durationUs=" + durationMicros
+        + " status=" + span.getStatus().getStatusCode()
+        + " attributes=" + span.getAttributes().asMap();
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  // called by the tracer provider and again by the application context on shutdown
+  @Override
+  public synchronized CompletableResultCode shutdown() {
+    if (closed) {
+      return CompletableResultCode.ofSuccess();
+    }
+    closed = true;
+    try {
+      writer.close();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException exception) {
+      return CompletableResultCode.ofFailure();
+    }
+  }
+}
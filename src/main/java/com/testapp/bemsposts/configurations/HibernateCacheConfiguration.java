@@ -0,0 +1,36 @@
+package com.testapp.bemsposts.configurations;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import java.net.URI;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// =============================================
+// *** Hibernate second-level cache regions ***
+// =============================================
+// Caffeine reads the regions from hibernate-jcache.conf through a classpath: URI. Hibernate's own
+// hibernate.javax.cache.uri resolves to a file or jar URI, and Caffeine can't read the config out
+// of the packaged jar through the latter, so Hibernate gets the cache manager instead.
+@Configuration
+@ConditionalOnProperty(
+    name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+public class HibernateCacheConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager() {
+    return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+        .getCacheManager(URI.create("classpath:hibernate-jcache.conf"),
+            getClass().getClassLoader());
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(
+      CacheManager hibernateCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+  }
+}
@@ -0,0 +1,26 @@
+package com.testapp.bemsposts.configurations;
+
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// ===========================
+// *** Span export targets ***
+// ===========================
+// Boot exports the finished spans to every SpanExporter bean. OTLP is configured by Boot itself
+// (management.otlp.tracing.endpoint), the file exporter here by posts.tracing.file, and tests can
+// register an in-memory exporter the same way.
+@Configuration
+public class TracingConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "posts.tracing.file")
+  public SpanExporter fileSpanExporter(@Value("${posts.tracing.file}") Path file)
+      throws IOException {
+    return new FileSpanExporter(file);
+  }
+}
@@ -0,0 +1,134 @@
+package com.testapp.bemsposts.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testapp.bemsposts.models.ErrorMessageDTO;
+import com.testapp.bemsposts.services.AdaptiveConcurrencyLimit;
+import com.testapp.bemsposts.services.ClientRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// =======================================
+// *** Admission of requests to /posts ***
+// =======================================
+// Runs before the Post controllers and answers right away instead of letting requests queue for
+// Tomcat threads, DB connections and the external API pool: 429 when the client is over its rate,
+// 503 when the instance is at its adaptive concurrency limit. A request of the reactive controller
+// holds its slot until the async response completes. Clients are told apart by their address, the
+// client header is honoured only on requests from a trusted proxy, as anyone else could send a new
+// id with every request to get a fresh bucket.
+public class PostAdmissionFilter extends OncePerRequestFilter {
+  public static final String REJECTED_COUNTER = "posts.admission.rejected";
+
+  private final ClientRateLimiter clientRateLimiter;
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+  private final String clientHeader;
+  private final Set<String> trustedProxies;
+  private final MeterRegistry meterRegistry;
+  private final ObjectMapper objectMapper;
+
+  public PostAdmissionFilter(
+      ClientRateLimiter clientRateLimiter,
+      AdaptiveConcurrencyLimit concurrencyLimit,
+      String clientHeader,
+      Set<String> trustedProxies,
+      MeterRegistry meterRegistry,
+      ObjectMapper objectMapper
+  ) {
+    this.clientRateLimiter = clientRateLimiter;
+    this.concurrencyLimit = concurrencyLimit;
+    this.clientHeader = clientHeader;
+    this.trustedProxies = trustedProxies;
+    this.meterRegistry = meterRegistry;
+    this.objectMapper = objectMapper;
+  }
+
+  // a streamed export runs for minutes, its duration would read as requests queuing
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return request.getRequestURI().startsWith(request.getContextPath() + "/posts/export");
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    long waitNanos = clientRateLimiter.tryAcquire(clientId(request));
+    if (waitNanos > 0) {
+      response.setHeader(HttpHeaders.RETRY_AFTER,
+          String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+      reject(response, HttpStatus.TOO_MANY_REQUESTS, "rate-limit", "Too Many Requests");
+      return;
+    }
+    if (!concurrencyLimit.tryAcquire()) {
+      reject(response, HttpStatus.SERVICE_UNAVAILABLE, "concurrency", "Server Overloaded");
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new ReleaseOnComplete(start));
+      } else {
+        concurrencyLimit.release(System.nanoTime() - start);
+      }
+    }
+  }
+
+  // the client header is set by the API gateway, a trusted proxy, on requests without it the
+  // gateway's own address would be the client of all of them
+  private String clientId(HttpServletRequest request) {
+    String remoteAddress = request.getRemoteAddr();
+    if (!trustedProxies.contains(remoteAddress)) {
+      return remoteAddress;
+    }
+    String clientId = request.getHeader(clientHeader);
+    return clientId != null && !clientId.isBlank() ? clientId : remoteAddress;
+  }
+
+  private void reject(HttpServletResponse response, HttpStatus status, String reason,
+                      String message) throws IOException {
+    meterRegistry.counter(REJECTED_COUNTER, "reason", reason).increment();
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(), new ErrorMessageDTO(message));
+  }
+
+  // onComplete follows a timeout or an error too, so the slot is released exactly once
+  private final class ReleaseOnComplete implements AsyncListener {
+    private final long start;
+
+    private ReleaseOnComplete(long start) {
+      this.start = start;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      concurrencyLimit.release(System.nanoTime() - start);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+  }
+}
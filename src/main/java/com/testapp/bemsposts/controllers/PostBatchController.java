@@ -0,0 +1,87 @@
+package com.testapp.bemsposts.controllers;
+
+import com.testapp.bemsposts.models.ErrorMessageDTO;
+import com.testapp.bemsposts.models.PostBatchItemDTO;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.services.PostBatchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+// Batch endpoints answer 200 with one result per requested item, in the order of the request.
+// Each item carries the status the single post endpoint would have answered with.
+@Tag(name = "Posts Microservice", description = "Posts Microservice with external API support")
+@Controller
+@RequestMapping("/posts")
+public class PostBatchController {
+
+  private final PostBatchService postBatchService;
+
+  @Autowired
+  public PostBatchController(PostBatchService postBatchService) {
+    this.postBatchService = postBatchService;
+  }
+
+  @Operation(
+      summary = "Add Posts in a batch",
+      description = "Adds a List of Post objects. Each userId is validated once per batch. The" +
+          " response holds the added Post object or the error of every item.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", content = {@Content(array = @ArraySchema(schema = @Schema(
+          implementation = PostBatchItemDTO.class)), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "413", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<PostBatchItemDTO>> addPosts(@RequestBody List<PostDTO> inputPosts) {
+    return ResponseEntity.status(HttpStatus.OK).body(postBatchService.addPosts(inputPosts));
+  }
+
+  @Operation(
+      summary = "Retrieve Posts by Ids",
+      description = "Gets Post objects by specifying their ids as a request parameter. Posts not" +
+          " stored in the system are looked up using external API and stored.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", content = {@Content(array = @ArraySchema(schema = @Schema(
+          implementation = PostBatchItemDTO.class)), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "413", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @GetMapping(value = "", params = "ids", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<PostBatchItemDTO>> findPostsByIds(
+      @RequestParam(value = "ids") List<Integer> ids) {
+    return ResponseEntity.status(HttpStatus.OK).body(postBatchService.findByIds(ids));
+  }
+
+  @Operation(
+      summary = "Delete Posts by Ids",
+      description = "Deletes Post objects by specifying their ids in the request body.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", content = {@Content(array = @ArraySchema(schema = @Schema(
+          implementation = PostBatchItemDTO.class)), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "413", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @DeleteMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<PostBatchItemDTO>> deletePostsByIds(
+      @RequestBody List<Integer> ids) {
+    return ResponseEntity.status(HttpStatus.OK).body(postBatchService.deletePostsByIds(ids));
+  }
+}
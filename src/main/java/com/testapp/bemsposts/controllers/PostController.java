@@ -1,31 +1,34 @@
 package com.testapp.bemsposts.controllers;
 
-import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
-import com.testapp.bemsposts.exceptions.NullInputException;
-import com.testapp.bemsposts.exceptions.PostNotFoundException;
-import com.testapp.bemsposts.exceptions.UserNotFoundException;
 import com.testapp.bemsposts.models.ErrorMessageDTO;
 import com.testapp.bemsposts.models.Post;
 import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
 import com.testapp.bemsposts.models.PostUpdateDTO;
 import com.testapp.bemsposts.services.PostService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.DeleteMapping;
-import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -34,16 +37,27 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 
 @Tag(name = "Posts Microservice", description = "Posts Microservice with external API support")
 @Controller
 @RequestMapping("/posts")
+@ConditionalOnProperty(
+    name = "posts.execution-mode", havingValue = "blocking", matchIfMissing = true)
 public class PostController {
+  public static final String PARTIAL_RESULT_HEADER = "X-Partial-Result";
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   private final PostService postService;
+  private final CacheControl cacheControl;
 
   @Autowired
-  public PostController(PostService postService) {
+  public PostController(
+      PostService postService,
+      @Value("${posts.http-cache.max-age}") Duration cacheMaxAge
+  ) {
     this.postService = postService;
+    this.cacheControl = CacheControl.maxAge(cacheMaxAge).mustRevalidate();
   }
 
   //  >>> FUNCTIONAL REQUIREMENT <<<
@@ -78,6 +92,7 @@ public class PostController {
   @ApiResponses({
       @ApiResponse(responseCode = "200", content = {@Content(schema = @Schema(
           implementation = Post.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "304", description = "Post matches the If-None-Match ETag"),
       @ApiResponse(responseCode = "404", content = {@Content(schema = @Schema(
           implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
       @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
@@ -86,7 +101,15 @@ public class PostController {
   @ResponseBody
   public ResponseEntity<Post> findPostById(@PathVariable(value = "id") Integer id) {
     Post post = postService.findById(id);
-    return ResponseEntity.status(HttpStatus.OK).body(post);
+    return postResponse(post, cacheControl);
+  }
+
+  // Spring answers a matching If-None-Match with 304 and doesn't serialize the body
+  static ResponseEntity<Post> postResponse(Post post, CacheControl cacheControl) {
+    return ResponseEntity.status(HttpStatus.OK)
+        .eTag(PostETags.of(post))
+        .cacheControl(cacheControl)
+        .body(post);
   }
 
   // ### HTML view ###
@@ -102,7 +125,8 @@ public class PostController {
   @Operation(
       summary = "Retrieve a Posts by UserId",
       description = "Gets a Post objects by specifying UserId as a request parameter. " +
-          "The response is the List of Post objects with id, title, body and userId.")
+          "The response is the List of Post objects with id, title, body and userId, ordered by" +
+          " id. At most limit posts are returned, the next page starts after cursor.")
   @ApiResponses({
       @ApiResponse(
           responseCode = "200",
@@ -110,8 +134,18 @@ public class PostController {
               @Content(
                   array = @ArraySchema(schema = @Schema(implementation = Post.class)),
                   mediaType = "application/json")
+          },
+          headers = {
+              @Header(name = PARTIAL_RESULT_HEADER, description = "true when external API missed" +
+                  " its deadline or is unavailable and only locally stored posts are returned"),
+              @Header(name = NEXT_CURSOR_HEADER, description = "cursor of the next page, missing" +
+                  " on the last page")
           }
       ),
+      @ApiResponse(
+          responseCode = "304",
+          description = "Page matches the If-None-Match ETag, partial pages have no ETag"
+      ),
       @ApiResponse(
           responseCode = "503",
           content = {
@@ -123,9 +157,39 @@ public class PostController {
   @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseBody
   public ResponseEntity<List<Post>> findPostsByUserId(
-      @RequestParam(value = "userId") Integer userId) {
-    List<Post> posts = postService.findPostsByUserId(userId);
-    return ResponseEntity.status(HttpStatus.OK).body(posts);
+      @RequestParam(value = "userId") Integer userId,
+      @RequestParam(value = "cursor", required = false) Integer cursor,
+      @RequestParam(value = "limit", defaultValue = "${posts.pagination.default-limit}")
+      int limit,
+      WebRequest webRequest) {
+    // a revalidation is answered from ids and versions when the page doesn't need external API
+    if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+      Optional<String> eTag = postService.findPostVersionsByUserId(userId, cursor, limit)
+          .map(PostETags::of);
+      if (eTag.isPresent() && webRequest.checkNotModified(eTag.get())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(eTag.get())
+            .cacheControl(cacheControl)
+            .build();
+      }
+    }
+    PostListDTO posts = postService.findPostsByUserId(userId, cursor, limit);
+    return postListResponse(posts, cacheControl);
+  }
+
+  // a partial page is neither cached nor validated, the next request may get the full page
+  static ResponseEntity<List<Post>> postListResponse(PostListDTO posts, CacheControl cacheControl) {
+    ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK)
+        .header(PARTIAL_RESULT_HEADER, String.valueOf(posts.isPartial()));
+    if (posts.isPartial()) {
+      response.cacheControl(CacheControl.noStore());
+    } else {
+      response.eTag(PostETags.of(posts)).cacheControl(cacheControl);
+    }
+    if (posts.getNextCursor() != null) {
+      response.header(NEXT_CURSOR_HEADER, posts.getNextCursor().toString());
+    }
+    return response.body(posts.getPosts());
   }
 
   //  >>> FUNCTIONAL REQUIREMENT <<<
@@ -148,12 +212,15 @@ public class PostController {
   @Operation(
       summary = "Update a Post by Id",
       description = "Updates a Post object by specifying its id. The response is Post object with" +
-          " id, title, body and userId.")
+          " id, title, body, userId and version. When the request has the version it was based" +
+          " on and the post has changed since, it's rejected with 409.")
   @ApiResponses({
       @ApiResponse(responseCode = "200", content = {@Content(schema = @Schema(
           implementation = Post.class), mediaType = "application/json")}),
       @ApiResponse(responseCode = "404", content = {@Content(schema = @Schema(
           implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "409", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
       @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
           implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
   @PutMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -164,28 +231,4 @@ public class PostController {
     return ResponseEntity.status(HttpStatus.OK).body(post);
   }
 
-  @ExceptionHandler(PostNotFoundException.class)
-  public ResponseEntity<ErrorMessageDTO> handlePostNotFoundException(PostNotFoundException exception) {
-    return ResponseEntity.status(HttpStatus.NOT_FOUND)
-        .body(new ErrorMessageDTO(exception.getMessage()));
-  }
-
-  @ExceptionHandler(UserNotFoundException.class)
-  public ResponseEntity<ErrorMessageDTO> handleUserNotFoundException(UserNotFoundException exception) {
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-        .body(new ErrorMessageDTO(exception.getMessage()));
-  }
-
-  @ExceptionHandler(ExternalAPIErrorException.class)
-  public ResponseEntity<ErrorMessageDTO> handleExternalAPIErrorException(ExternalAPIErrorException exception) {
-    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-        .body(new ErrorMessageDTO(exception.getMessage()));
-  }
-
-  @ExceptionHandler(NullInputException.class)
-  public ResponseEntity<ErrorMessageDTO> handleNullInputException(NullInputException exception) {
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-        .body(new ErrorMessageDTO(exception.getMessage()));
-  }
-
 }
@@ -0,0 +1,52 @@
+package com.testapp.bemsposts.controllers;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import java.nio.charset.StandardCharsets;
+import org.springframework.util.DigestUtils;
+
+// ===================================
+// *** Strong ETags of Post bodies ***
+// ===================================
+// Hashed from the post fields instead of the serialized JSON, so a matching If-None-Match is
+// answered with 304 before anything is serialized. A page is hashed from the ids and versions of
+// its posts, which the DB gives without the bodies; only posts known just to external API carry
+// no version and are hashed from their content.
+final class PostETags {
+
+  private PostETags() {
+  }
+
+  static String of(Post post) {
+    StringBuilder content = new StringBuilder();
+    append(content, post);
+    return hash(content);
+  }
+
+  static String of(PostListDTO posts) {
+    StringBuilder content = new StringBuilder();
+    for (Post post : posts.getPosts()) {
+      if (post.getVersion() != null) {
+        content.append(post.getId()).append('v').append(post.getVersion()).append(';');
+      } else {
+        append(content, post);
+      }
+    }
+    content.append(posts.getNextCursor());
+    return hash(content);
+  }
+
+  // fields are length-prefixed, so different posts can't produce the same content
+  private static void append(StringBuilder content, Post post) {
+    for (Object field : new Object[] {post.getId(), post.getUserId(), post.getTitle(),
+        post.getBody(), post.getVersion()}) {
+      String value = String.valueOf(field);
+      content.append(value.length()).append(':').append(value);
+    }
+  }
+
+  private static String hash(StringBuilder content) {
+    return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8))
+        + "\"";
+  }
+}
@@ -0,0 +1,73 @@
+package com.testapp.bemsposts.controllers;
+
+import com.testapp.bemsposts.exceptions.BatchTooLargeException;
+import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
+import com.testapp.bemsposts.exceptions.NullInputException;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.exceptions.PostVersionConflictException;
+import com.testapp.bemsposts.exceptions.SearchNotSupportedException;
+import com.testapp.bemsposts.exceptions.UserNotFoundException;
+import com.testapp.bemsposts.models.ErrorMessageDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+// *** Error responses shared by the blocking and the reactive Post controllers ***
+// Every mapped error is counted in posts.errors, tagged with the exception and the response status
+@ControllerAdvice
+public class PostExceptionHandler {
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public PostExceptionHandler(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  private ResponseEntity<ErrorMessageDTO> errorResponse(HttpStatus status, RuntimeException exception) {
+    meterRegistry.counter("posts.errors",
+            "exception", exception.getClass().getSimpleName(),
+            "status", String.valueOf(status.value()))
+        .increment();
+    return ResponseEntity.status(status)
+        .body(new ErrorMessageDTO(exception.getMessage()));
+  }
+
+  @ExceptionHandler(PostNotFoundException.class)
+  public ResponseEntity<ErrorMessageDTO> handlePostNotFoundException(PostNotFoundException exception) {
+    return errorResponse(HttpStatus.NOT_FOUND, exception);
+  }
+
+  @ExceptionHandler(UserNotFoundException.class)
+  public ResponseEntity<ErrorMessageDTO> handleUserNotFoundException(UserNotFoundException exception) {
+    return errorResponse(HttpStatus.BAD_REQUEST, exception);
+  }
+
+  @ExceptionHandler(ExternalAPIErrorException.class)
+  public ResponseEntity<ErrorMessageDTO> handleExternalAPIErrorException(ExternalAPIErrorException exception) {
+    return errorResponse(HttpStatus.SERVICE_UNAVAILABLE, exception);
+  }
+
+  @ExceptionHandler(NullInputException.class)
+  public ResponseEntity<ErrorMessageDTO> handleNullInputException(NullInputException exception) {
+    return errorResponse(HttpStatus.BAD_REQUEST, exception);
+  }
+
+  @ExceptionHandler(BatchTooLargeException.class)
+  public ResponseEntity<ErrorMessageDTO> handleBatchTooLargeException(BatchTooLargeException exception) {
+    return errorResponse(HttpStatus.PAYLOAD_TOO_LARGE, exception);
+  }
+
+  @ExceptionHandler(PostVersionConflictException.class)
+  public ResponseEntity<ErrorMessageDTO> handlePostVersionConflictException(PostVersionConflictException exception) {
+    return errorResponse(HttpStatus.CONFLICT, exception);
+  }
+
+  @ExceptionHandler(SearchNotSupportedException.class)
+  public ResponseEntity<ErrorMessageDTO> handleSearchNotSupportedException(SearchNotSupportedException exception) {
+    return errorResponse(HttpStatus.NOT_IMPLEMENTED, exception);
+  }
+
+}
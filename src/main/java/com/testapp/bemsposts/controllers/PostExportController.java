@@ -0,0 +1,78 @@
+package com.testapp.bemsposts.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testapp.bemsposts.models.ErrorMessageDTO;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.services.PostService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// Export is served by the blocking service in both execution modes, the rows are written while
+// the DB cursor is read on an MVC async thread.
+@Tag(name = "Posts Microservice", description = "Posts Microservice with external API support")
+@Controller
+@RequestMapping("/posts")
+public class PostExportController {
+  // posts written between explicit flushes, so the client sees data before the export ends
+  private static final int FLUSH_EVERY = 100;
+
+  private final PostService postService;
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public PostExportController(PostService postService, ObjectMapper objectMapper) {
+    this.postService = postService;
+    this.objectMapper = objectMapper;
+  }
+
+  @Operation(
+      summary = "Export all Posts by UserId",
+      description = "Streams all Post objects of the user as newline delimited JSON, ordered by" +
+          " id. Unlike the paged endpoint, the whole result is never held in memory.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", content = {@Content(schema = @Schema(
+          implementation = Post.class), mediaType = MediaType.APPLICATION_NDJSON_VALUE)}),
+      @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<StreamingResponseBody> exportPostsByUserId(
+      @RequestParam(value = "userId") Integer userId) {
+    StreamingResponseBody body = outputStream -> {
+      // not closed on failure, an error raised before the first flush still gets its own status
+      JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+      int[] written = {0};
+      postService.exportPostsByUserId(userId, post -> {
+        try {
+          generator.writeObject(post);
+          generator.writeRaw('\n');
+          if (++written[0] % FLUSH_EVERY == 0) {
+            generator.flush();
+          }
+        } catch (IOException exception) {
+          throw new UncheckedIOException(exception);
+        }
+      });
+      generator.flush();
+    };
+    return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON)
+        .body(body);
+  }
+}
@@ -0,0 +1,72 @@
+package com.testapp.bemsposts.controllers;
+
+import com.testapp.bemsposts.models.ErrorMessageDTO;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.services.PostSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+// Search reads only the DB, so it's served by the blocking service in both execution modes
+@Tag(name = "Posts Microservice", description = "Posts Microservice with external API support")
+@Controller
+@RequestMapping("/posts")
+public class PostSearchController {
+
+  private final PostSearchService postSearchService;
+  private final CacheControl cacheControl;
+
+  @Autowired
+  public PostSearchController(
+      PostSearchService postSearchService,
+      @Value("${posts.http-cache.max-age}") Duration cacheMaxAge
+  ) {
+    this.postSearchService = postSearchService;
+    this.cacheControl = CacheControl.maxAge(cacheMaxAge).mustRevalidate();
+  }
+
+  @Operation(
+      summary = "Search Posts",
+      description = "Gets the Post objects whose title or body match the query, best matches" +
+          " first. The query takes words, \"quoted phrases\", or and -excluded words. Only posts" +
+          " stored in the system are searched. Results are paged, the X-Next-Cursor header holds" +
+          " the cursor of the next page.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200",
+          headers = @Header(name = PostController.NEXT_CURSOR_HEADER,
+              description = "cursor of the next page, missing on the last page"),
+          content = {@Content(array = @ArraySchema(schema = @Schema(
+              implementation = Post.class)), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "400", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "501", description = "DB is not PostgreSQL",
+          content = {@Content(schema = @Schema(implementation = ErrorMessageDTO.class),
+              mediaType = "application/json")})})
+  @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<List<Post>> searchPosts(
+      @RequestParam(value = "q") String query,
+      @RequestParam(value = "cursor", required = false) Integer cursor,
+      @RequestParam(value = "limit", defaultValue = "${posts.search.default-limit}") int limit) {
+    PostListDTO posts = postSearchService.searchPosts(query, cursor, limit);
+    return PostController.postListResponse(posts, cacheControl);
+  }
+}
@@ -0,0 +1,199 @@
+package com.testapp.bemsposts.controllers;
+
+import static com.testapp.bemsposts.controllers.PostController.NEXT_CURSOR_HEADER;
+import static com.testapp.bemsposts.controllers.PostController.PARTIAL_RESULT_HEADER;
+
+import com.testapp.bemsposts.models.ErrorMessageDTO;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.services.ReactivePostService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import reactor.core.publisher.Mono;
+
+// *** Non-blocking variant of PostController, enabled by posts.execution-mode=reactive ***
+@Tag(name = "Posts Microservice", description = "Posts Microservice with external API support")
+@Controller
+@RequestMapping("/posts")
+@ConditionalOnProperty(name = "posts.execution-mode", havingValue = "reactive")
+public class ReactivePostController {
+  private final ReactivePostService postService;
+  private final CacheControl cacheControl;
+
+  @Autowired
+  public ReactivePostController(
+      ReactivePostService postService,
+      @Value("${posts.http-cache.max-age}") Duration cacheMaxAge
+  ) {
+    this.postService = postService;
+    this.cacheControl = CacheControl.maxAge(cacheMaxAge).mustRevalidate();
+  }
+
+  //  >>> FUNCTIONAL REQUIREMENT <<<
+  //    - Pridanie príspevku - potrebné validovať userID pomocou externej API
+
+  @Operation(
+      summary = "Add a Post",
+      description = "Adds a Post object. The response is added Post object with id, title," +
+          " body and userId.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "201", content = {@Content(schema = @Schema(
+          implementation = Post.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "400", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @PostMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Mono<ResponseEntity<Post>> addPost(@RequestBody PostDTO inputPost) {
+    return postService.addPost(inputPost)
+        .map(post -> ResponseEntity.status(HttpStatus.CREATED).body(post));
+  }
+
+  //  >>> FUNCTIONAL REQUIREMENT <<<
+  //    - Zobrazenie príspevku na základe id
+  //    - ak sa príspevok nenájde v systéme, je potrebné ho dohľadať pomocou externej API a uložiť
+
+  @Operation(
+      summary = "Retrieve a Post by Id",
+      description = "Gets a Post object by specifying its id. The response is Post object with" +
+          " id, title, body and userId.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", content = {@Content(schema = @Schema(
+          implementation = Post.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "304", description = "Post matches the If-None-Match ETag"),
+      @ApiResponse(responseCode = "404", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Mono<ResponseEntity<Post>> findPostById(@PathVariable(value = "id") Integer id) {
+    return postService.findById(id)
+        .map(post -> PostController.postResponse(post, cacheControl));
+  }
+
+  // ### HTML view ###
+  @GetMapping(value = "/{id}", produces = MediaType.TEXT_HTML_VALUE)
+  public Mono<String> getIndex(Model model, @PathVariable(value = "id") Integer id) {
+    return postService.findById(id)
+        .map(post -> {
+          model.addAttribute("post", post);
+          return "postview";
+        });
+  }
+
+  //  >>> FUNCTIONAL REQUIREMENT <<<
+  //    - Zobrazenie príspevkov na základe userId
+
+  @Operation(
+      summary = "Retrieve a Posts by UserId",
+      description = "Gets a Post objects by specifying UserId as a request parameter. " +
+          "The response is the List of Post objects with id, title, body and userId, ordered by" +
+          " id. At most limit posts are returned, the next page starts after cursor.")
+  @ApiResponses({
+      @ApiResponse(
+          responseCode = "200",
+          content = {
+              @Content(
+                  array = @ArraySchema(schema = @Schema(implementation = Post.class)),
+                  mediaType = "application/json")
+          },
+          headers = {
+              @Header(name = PARTIAL_RESULT_HEADER, description = "true when external API missed" +
+                  " its deadline or is unavailable and only locally stored posts are returned"),
+              @Header(name = NEXT_CURSOR_HEADER, description = "cursor of the next page, missing" +
+                  " on the last page")
+          }
+      ),
+      @ApiResponse(
+          responseCode = "304",
+          description = "Page matches the If-None-Match ETag, partial pages have no ETag"
+      ),
+      @ApiResponse(
+          responseCode = "503",
+          content = {
+              @Content(schema = @Schema(implementation = ErrorMessageDTO.class),
+                  mediaType = "application/json")
+          }
+      )
+  })
+  @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Mono<ResponseEntity<List<Post>>> findPostsByUserId(
+      @RequestParam(value = "userId") Integer userId,
+      @RequestParam(value = "cursor", required = false) Integer cursor,
+      @RequestParam(value = "limit", defaultValue = "${posts.pagination.default-limit}")
+      int limit) {
+    return postService.findPostsByUserId(userId, cursor, limit)
+        .map(posts -> PostController.postListResponse(posts, cacheControl));
+  }
+
+  //  >>> FUNCTIONAL REQUIREMENT <<<
+  //    - Odstránenie príspevku
+  @Operation(
+      summary = "Delete a Post by Id", description = "Deletes a Post object by specifying its id.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200"),
+      @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @DeleteMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Mono<ResponseEntity<Post>> deletePostById(@PathVariable(value = "id") Integer id) {
+    return postService.deletePostById(id)
+        .then(Mono.fromCallable(() -> ResponseEntity.status(HttpStatus.OK).build()));
+  }
+
+  //  >>> FUNCTIONAL REQUIREMENT <<<
+  //    - Upravenie príspevku - možnosť meniť title a body
+  @Operation(
+      summary = "Update a Post by Id",
+      description = "Updates a Post object by specifying its id. The response is Post object with" +
+          " id, title, body, userId and version. When the request has the version it was based" +
+          " on and the post has changed since, it's rejected with 409.")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", content = {@Content(schema = @Schema(
+          implementation = Post.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "404", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "409", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")}),
+      @ApiResponse(responseCode = "503", content = {@Content(schema = @Schema(
+          implementation = ErrorMessageDTO.class), mediaType = "application/json")})})
+  @PutMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Mono<ResponseEntity<Post>> putPostById(@PathVariable(value = "id") Integer id,
+                                                @RequestBody PostUpdateDTO inputPost) {
+    return postService.updatePostById(id, inputPost)
+        .map(post -> ResponseEntity.status(HttpStatus.OK).body(post));
+  }
+
+}
@@ -0,0 +1,7 @@
+package com.testapp.bemsposts.exceptions;
+
+public class BatchTooLargeException extends RuntimeException {
+  public BatchTooLargeException(String s) {
+    super(s);
+  }
+}
@@ -0,0 +1,8 @@
+package com.testapp.bemsposts.exceptions;
+
+// External API wasn't called at all, because its circuit breaker is open or its bulkhead is full
+public class ExternalAPIUnavailableException extends ExternalAPIErrorException {
+  public ExternalAPIUnavailableException(String s) {
+    super(s);
+  }
+}
@@ -0,0 +1,7 @@
+package com.testapp.bemsposts.exceptions;
+
+public class PostVersionConflictException extends RuntimeException {
+  public PostVersionConflictException(String s) {
+    super(s);
+  }
+}
@@ -0,0 +1,7 @@
+package com.testapp.bemsposts.exceptions;
+
+public class SearchNotSupportedException extends RuntimeException {
+  public SearchNotSupportedException(String s) {
+    super(s);
+  }
+}
@@ -1,24 +1,43 @@
 package com.testapp.bemsposts.models;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 
+// held in the Hibernate second-level cache when it's enabled (prod profile)
 @Entity
-@Table(name = "posts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
+@Table(name = "posts", indexes = @Index(name = "posts_user_id_id_idx", columnList = "user_id, id"))
 public class Post {
   @Id
   private Integer id;
   private Integer userId;
   private String title;
   private String body;
+  // bumped by every local write, null while the post is only known to external API
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  private Integer version;
+
+  public Post(Integer id, Integer userId, String title, String body) {
+    this(id, userId, title, body, null);
+  }
 }
@@ -0,0 +1,21 @@
+package com.testapp.bemsposts.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class PostBatchItemDTO {
+  // post id the item is about, null for a post that couldn't be created
+  private Integer id;
+  // HTTP status the single-item endpoint would have answered with
+  private int status;
+  // created or found post, null on error and for deletes
+  private Post post;
+  private String error;
+}
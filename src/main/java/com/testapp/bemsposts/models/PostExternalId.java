@@ -0,0 +1,25 @@
+package com.testapp.bemsposts.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Id external API gave a post created locally in write-behind mode, null until its CREATE is sent
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+@Entity
+@Table(name = "post_external_ids",
+    indexes = @Index(name = "post_external_ids_external_id_idx", columnList = "external_id"))
+public class PostExternalId {
+  @Id
+  private Integer postId;
+  private Integer externalId;
+}
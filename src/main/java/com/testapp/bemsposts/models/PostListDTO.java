@@ -0,0 +1,22 @@
+package com.testapp.bemsposts.models;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class PostListDTO {
+  private List<Post> posts;
+  // true when the external API missed its deadline or is unavailable and only locally stored posts
+  // are returned
+  private boolean partial;
+  // cursor of the next page, null on the last page: the last id of the page, or for search the
+  // number of posts returned so far
+  private Integer nextCursor;
+}
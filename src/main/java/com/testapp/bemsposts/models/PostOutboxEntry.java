@@ -0,0 +1,48 @@
+package com.testapp.bemsposts.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Pending external API mutation of a post, written in the same transaction as the local change
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+@Entity
+@Table(name = "post_outbox",
+    indexes = @Index(name = "post_outbox_post_id_idx", columnList = "post_id"))
+public class PostOutboxEntry {
+  // increasing id keeps the order of the mutations of one post
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+  private Integer postId;
+  @Enumerated(EnumType.STRING)
+  private PostOutboxOperation operation;
+  private Integer userId;
+  private String title;
+  private String body;
+  private int attempts;
+  // the dispatcher skips the entry, and later entries of the same post, until this time
+  private Instant nextAttemptAt;
+  private String lastError;
+  // set when the dispatcher gave up on the entry, it's kept for inspection but never sent
+  private Instant deadLetteredAt;
+
+  public PostOutboxEntry(PostOutboxOperation operation, Post post) {
+    this(null, post.getId(), operation, post.getUserId(), post.getTitle(), post.getBody(), 0,
+        Instant.now(), null, null);
+  }
+}
@@ -0,0 +1,7 @@
+package com.testapp.bemsposts.models;
+
+public enum PostOutboxOperation {
+  CREATE,
+  UPDATE,
+  DELETE
+}
@@ -12,4 +12,6 @@ import lombok.Setter;
 public class PostUpdateDTO {
   private String title;
   private String body;
+  // version the client read, the update is rejected with 409 when the post changed since
+  private Integer version;
 }
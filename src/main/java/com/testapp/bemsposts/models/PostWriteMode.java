@@ -0,0 +1,12 @@
+package com.testapp.bemsposts.models;
+
+// posts.external-api.write-mode: sync (writes wait for external API) or write-behind (writes end
+// with the local transaction, which stores the pending external API mutation in post_outbox)
+public enum PostWriteMode {
+  SYNC,
+  WRITE_BEHIND;
+
+  public boolean isWriteBehind() {
+    return this == WRITE_BEHIND;
+  }
+}
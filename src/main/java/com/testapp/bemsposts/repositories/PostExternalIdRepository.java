@@ -0,0 +1,17 @@
+package com.testapp.bemsposts.repositories;
+
+import com.testapp.bemsposts.models.PostExternalId;
+import java.util.Collection;
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PostExternalIdRepository extends JpaRepository<PostExternalId, Integer> {
+  // which of the given ids external API gave to posts created locally
+  @Query("select externalId.externalId from PostExternalId externalId"
+      + " where externalId.externalId in :externalIds")
+  Set<Integer> findMappedExternalIds(@Param("externalIds") Collection<Integer> externalIds);
+}
@@ -0,0 +1,33 @@
+package com.testapp.bemsposts.repositories;
+
+import com.testapp.bemsposts.models.PostOutboxEntry;
+import com.testapp.bemsposts.models.PostOutboxOperation;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PostOutboxRepository extends JpaRepository<PostOutboxEntry, Long> {
+  // Due mutations, oldest first, the dispatcher keeps their order per post id. A mutation waits
+  // while an older one of its post is backing off, mutations of other posts don't. Dead letters
+  // are neither sent nor hold anything back.
+  @Query("select entry from PostOutboxEntry entry"
+      + " where entry.deadLetteredAt is null and entry.nextAttemptAt <= :now"
+      + " and not exists (select earlier.id from PostOutboxEntry earlier"
+      + "   where earlier.postId = entry.postId and earlier.id < entry.id"
+      + "   and earlier.deadLetteredAt is null and earlier.nextAttemptAt > :now)"
+      + " order by entry.id")
+  List<PostOutboxEntry> findDue(@Param("now") Instant now, Pageable pageable);
+
+  // which of the given posts have a mutation of the operation, without loading the entries
+  @Query("select distinct entry.postId from PostOutboxEntry entry"
+      + " where entry.postId in :postIds and entry.operation = :operation")
+  Set<Integer> findPostIdsByOperation(@Param("postIds") Collection<Integer> postIds,
+      @Param("operation") PostOutboxOperation operation);
+}
@@ -1,11 +1,110 @@
 package com.testapp.bemsposts.repositories;
 
 import com.testapp.bemsposts.models.Post;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Integer> {
-  List<Post> findAllByUserId(Integer userId);
+  // keyset page served by the (user_id, id) index, kept in the query cache when it's enabled
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  List<Post> findByUserIdAndIdGreaterThanOrderByIdAsc(Integer userId, Integer id, Limit limit);
+
+  // the same keyset page without titles and bodies, enough to revalidate its ETag
+  List<PostVersion> findVersionsByUserIdAndIdGreaterThanOrderByIdAsc(
+      Integer userId, Integer id, Limit limit);
+
+  interface PostVersion {
+    Integer getId();
+
+    Integer getVersion();
+  }
+
+  // constructor expression returns detached posts, so the persistence context doesn't grow while
+  // the cursor is read; must be consumed inside a transaction
+  @Query("select new com.testapp.bemsposts.models.Post(p.id, p.userId, p.title, p.body,"
+      + " p.version) from Post p where p.userId = :userId order by p.id")
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<Post> streamAllByUserId(@Param("userId") Integer userId);
+
+  // Best ranked posts matching the query first, served by the GIN index of the search_vector
+  // column (PostgreSQL only, see db/migration/postgresql). The query is parsed like web search
+  // input: words, "quoted phrases", or, -excluded. Only the first `candidates` matches are ranked,
+  // so a query matching most of the table doesn't rank and sort all of it for every page.
+  @Query(value = "with q as (select websearch_to_tsquery('english', :query) as query),"
+      + " candidates as (select p.id, p.user_id, p.title, p.body, p.version, p.search_vector"
+      + " from posts p, q where p.search_vector @@ q.query limit :candidates)"
+      + " select c.id, c.user_id, c.title, c.body, c.version from candidates c, q"
+      + " order by ts_rank(c.search_vector, q.query) desc, c.id"
+      + " limit :limit offset :offset", nativeQuery = true)
+  List<Post> search(@Param("query") String query, @Param("offset") int offset,
+      @Param("limit") int limit, @Param("candidates") int candidates);
+
+  // which of the given ids are stored, without loading the posts
+  @Query("select p.id from Post p where p.id in :ids")
+  Set<Integer> findStoredIds(@Param("ids") Collection<Integer> ids);
+
+  // ids of posts created locally in write-behind mode, the sequence starts far above external ids
+  @Query(value = "select nextval('posts_local_id_seq')", nativeQuery = true)
+  long nextLocalId();
+
+  // writes only the given title and/or body, and only while the post still has the expected
+  // version; 0 updated rows means the post changed or was deleted in the meantime
+  @Transactional
+  @Modifying
+  @Query("update Post p set p.title = coalesce(:title, p.title), p.body = coalesce(:body, p.body),"
+      + " p.version = p.version + 1 where p.id = :id and p.version = :version")
+  int updateTitleAndBody(@Param("id") Integer id, @Param("title") String title,
+      @Param("body") String body, @Param("version") Integer version);
+
+  // sets both fields, nulls included, to undo an update, guarded like updateTitleAndBody
+  @Transactional
+  @Modifying
+  @Query("update Post p set p.title = :title, p.body = :body, p.version = p.version + 1"
+      + " where p.id = :id and p.version = :version")
+  int replaceTitleAndBody(@Param("id") Integer id, @Param("title") String title,
+      @Param("body") String body, @Param("version") Integer version);
+
+  // Posts as external API returned them carry no version, so save persists them: one INSERT
+  // each, without the SELECT a merge would need first. When an id turns out to be stored already
+  // (a concurrent fill, or an external API reusing ids) the failed batch is rolled back, the
+  // stored copies are returned unchanged, as the local copy is authoritative, and only the other
+  // posts are inserted. External API may return one id more than once, the last post of an id is
+  // kept. Called outside of a transaction, so the failed INSERT is seen here and not only at the
+  // caller's commit.
+  default List<Post> saveAllFromExternalAPI(Collection<Post> posts) {
+    Map<Integer, Post> postsById = new LinkedHashMap<>();
+    posts.forEach(post -> postsById.put(post.getId(), post));
+    try {
+      return saveAll(postsById.values());
+    } catch (DataIntegrityViolationException exception) {
+      Map<Integer, Post> storedPosts = new HashMap<>();
+      findAllById(postsById.keySet()).forEach(post -> storedPosts.put(post.getId(), post));
+      if (storedPosts.isEmpty()) {
+        throw exception;
+      }
+      List<Post> newPosts = postsById.values().stream()
+          .filter(post -> !storedPosts.containsKey(post.getId()))
+          .toList();
+      newPosts.forEach(post -> post.setVersion(null));
+      saveAllFromExternalAPI(newPosts).forEach(post -> storedPosts.put(post.getId(), post));
+      return postsById.keySet().stream().map(storedPosts::get).toList();
+    }
+  }
 }
@@ -0,0 +1,103 @@
+package com.testapp.bemsposts.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ===================================================
+// *** Concurrency limit following request latency ***
+// ===================================================
+// Gradient algorithm: the average latency of the last window of requests (short RTT) is compared
+// with the long-term average (long RTT). While they match the limit grows by sqrt(limit), once
+// requests queue and the short RTT rises the limit shrinks by the ratio long/short (at most by
+// half per window). The limit is only changed by windows that actually used half of it, a lightly
+// loaded instance says nothing about how much it can take.
+public class AdaptiveConcurrencyLimit {
+  private static final double SMOOTHING = 0.2;
+  private static final int LONG_RTT_WINDOWS = 10;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final int windowSize;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile int limit;
+
+  // guarded by this
+  private double estimatedLimit;
+  private double longRtt;
+  private double shortRtt;
+  private long windows;
+  private long windowRttSum;
+  private int windowSamples;
+  private int windowMaxInFlight;
+
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int windowSize) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.windowSize = windowSize;
+    this.estimatedLimit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    this.limit = (int) estimatedLimit;
+  }
+
+  // a caller that got true must call release when its request is done
+  public boolean tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit) {
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  public void release(long rttNanos) {
+    int inFlightBefore = inFlight.getAndDecrement();
+    sample(rttNanos, inFlightBefore);
+  }
+
+  private synchronized void sample(long rttNanos, int inFlightBefore) {
+    windowRttSum += rttNanos;
+    windowSamples++;
+    windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+    if (windowSamples < windowSize) {
+      return;
+    }
+    shortRtt = Math.max(1.0, (double) windowRttSum / windowSamples);
+    int maxInFlight = windowMaxInFlight;
+    windowRttSum = 0;
+    windowSamples = 0;
+    windowMaxInFlight = 0;
+
+    windows++;
+    longRtt = windows == 1
+        ? shortRtt
+        : longRtt + (shortRtt - longRtt) / Math.min(windows, LONG_RTT_WINDOWS);
+    // latency is back to normal after an overload, the long RTT follows it down faster
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+    if (maxInFlight < estimatedLimit / 2) {
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+        estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    limit = (int) estimatedLimit;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public synchronized double getLongRttMillis() {
+    return longRtt / 1_000_000;
+  }
+
+  public synchronized double getShortRttMillis() {
+    return shortRtt / 1_000_000;
+  }
+}
@@ -0,0 +1,59 @@
+package com.testapp.bemsposts.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// ===============================
+// *** Per-client token bucket ***
+// ===============================
+// Every client gets a bucket of burst tokens refilled at requestsPerSecond, a request takes one.
+// A bucket idle for longer than a full refill is full again, so it's dropped and recreated on the
+// next request, which keeps only the recently active clients in memory.
+public class ClientRateLimiter {
+  private final double tokensPerNano;
+  private final double burst;
+  private final LongSupplier nanoClock;
+  private final Cache<String, Bucket> buckets;
+
+  public ClientRateLimiter(double requestsPerSecond, int burst, int maxClients) {
+    this(requestsPerSecond, burst, maxClients, System::nanoTime);
+  }
+
+  ClientRateLimiter(double requestsPerSecond, int burst, int maxClients, LongSupplier nanoClock) {
+    this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.burst = burst;
+    this.nanoClock = nanoClock;
+    this.buckets = Caffeine.newBuilder()
+        .maximumSize(maxClients)
+        .expireAfterAccess(Duration.ofNanos((long) Math.ceil(burst / tokensPerNano)))
+        .build();
+  }
+
+  // 0 when the request is admitted, otherwise nanos until the client gets its next token
+  public long tryAcquire(String clientId) {
+    return buckets.get(clientId, id -> new Bucket()).tryAcquire();
+  }
+
+  public long clients() {
+    return buckets.estimatedSize();
+  }
+
+  private final class Bucket {
+    private double tokens = burst;
+    private long refilledAt = nanoClock.getAsLong();
+
+    synchronized long tryAcquire() {
+      long now = nanoClock.getAsLong();
+      tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+      refilledAt = now;
+      if (tokens >= 1) {
+        tokens--;
+        return 0;
+      }
+      return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+  }
+}
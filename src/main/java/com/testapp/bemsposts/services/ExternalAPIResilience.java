@@ -0,0 +1,70 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.exceptions.ExternalAPIUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// =====================================================================
+// *** Circuit breaker, bulkhead and retry around external API calls ***
+// =====================================================================
+// Settings come from resilience4j.*.instances.externalApi. Calls rejected by an open breaker or a
+// full bulkhead fail right away with ExternalAPIUnavailableException, only reads are retried.
+@Component
+public class ExternalAPIResilience {
+  public static final String EXTERNAL_API = "externalApi";
+
+  private final CircuitBreaker circuitBreaker;
+  private final Bulkhead bulkhead;
+  private final Retry retry;
+
+  @Autowired
+  public ExternalAPIResilience(
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      BulkheadRegistry bulkheadRegistry,
+      RetryRegistry retryRegistry
+  ) {
+    this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(EXTERNAL_API);
+    this.bulkhead = bulkheadRegistry.bulkhead(EXTERNAL_API);
+    this.retry = retryRegistry.retry(EXTERNAL_API);
+  }
+
+  // for idempotent GETs
+  public <T> Mono<T> read(Mono<T> call) {
+    return write(call).transformDeferred(RetryOperator.of(retry));
+  }
+
+  public <T> Flux<T> read(Flux<T> call) {
+    return call.transformDeferred(BulkheadOperator.of(bulkhead))
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+        .onErrorMap(ExternalAPIResilience::isRejected, ExternalAPIResilience::unavailable)
+        .transformDeferred(RetryOperator.of(retry));
+  }
+
+  public <T> Mono<T> write(Mono<T> call) {
+    return call.transformDeferred(BulkheadOperator.of(bulkhead))
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+        .onErrorMap(ExternalAPIResilience::isRejected, ExternalAPIResilience::unavailable);
+  }
+
+  private static boolean isRejected(Throwable throwable) {
+    return throwable instanceof CallNotPermittedException
+        || throwable instanceof BulkheadFullException;
+  }
+
+  private static Throwable unavailable(Throwable throwable) {
+    return new ExternalAPIUnavailableException("External API Unavailable");
+  }
+}
@@ -2,14 +2,15 @@ package com.testapp.bemsposts.services;
 
 import com.testapp.bemsposts.models.Post;
 import com.testapp.bemsposts.models.PostDTO;
-import com.testapp.bemsposts.models.PostUpdateDTO;
-import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface ExternalAPIService {
-  void validateUserId(Integer userId);
-  Post savePost(PostDTO inputPost);
-  Post findPostById(Integer id);
-  List<Post> findPostsByUserId(Integer userId);
-  Post updatePostById(Integer id, PostUpdateDTO inputPost);
-  void deletePostById(Integer id);
+  Mono<Void> validateUserId(Integer userId);
+  Mono<Post> savePost(PostDTO inputPost);
+  Mono<Post> savePost(PostDTO inputPost, String idempotencyKey);
+  Mono<Post> findPostById(Integer id);
+  Flux<Post> findPostsByUserId(Integer userId);
+  Mono<Post> replacePost(Post post);
+  Mono<Void> deletePostById(Integer id);
 }
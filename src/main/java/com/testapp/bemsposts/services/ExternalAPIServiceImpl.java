@@ -1,111 +1,216 @@
 package com.testapp.bemsposts.services;
 
+import com.testapp.bemsposts.configurations.CacheConfiguration;
 import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
 import com.testapp.bemsposts.exceptions.PostNotFoundException;
 import com.testapp.bemsposts.exceptions.UserNotFoundException;
 import com.testapp.bemsposts.models.Post;
 import com.testapp.bemsposts.models.PostDTO;
-import com.testapp.bemsposts.models.PostUpdateDTO;
 import com.testapp.bemsposts.models.UserDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+@Slf4j
 @Service
 public class ExternalAPIServiceImpl implements ExternalAPIService {
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
   private final WebClient webClient;
+  private final ExternalAPIResilience resilience;
+  private final Cache knownUsers;
+  private final Cache unknownUsers;
+  private final Timer userValidationTimer;
+  private final Counter userValidationSaved;
+  private final PostMetrics postMetrics;
+  private final boolean warmUpKnownUsers;
 
   @Autowired
-  public ExternalAPIServiceImpl(WebClient webClient) {
+  public ExternalAPIServiceImpl(
+      WebClient webClient,
+      CacheManager cacheManager,
+      MeterRegistry meterRegistry,
+      ExternalAPIResilience resilience,
+      @Value("${posts.cache.known-users.warm-up}") boolean warmUpKnownUsers
+  ) {
     this.webClient = webClient;
+    this.resilience = resilience;
+    this.knownUsers = cacheManager.getCache(CacheConfiguration.KNOWN_USERS_CACHE);
+    this.unknownUsers = cacheManager.getCache(CacheConfiguration.UNKNOWN_USERS_CACHE);
+    this.userValidationTimer = Timer.builder("posts.users.validation")
+        .description("External API calls validating a userId")
+        .register(meterRegistry);
+    this.userValidationSaved = Counter.builder("posts.users.validation.saved")
+        .description("External API time saved by cached userId validations")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    this.postMetrics = new PostMetrics(meterRegistry);
+    this.warmUpKnownUsers = warmUpKnownUsers;
   }
 
+  // ----------------------------------------------------
+  // *** UserId validation with known/unknown caching ***
+  // ----------------------------------------------------
+  // Only a 404 makes a user unknown, other client errors say nothing about the user and aren't
+  // cached.
   @Override
-  public void validateUserId(Integer userId) {
-    webClient.get()
-        .uri(uriBuilder -> uriBuilder.pathSegment("users", userId.toString()).build())
-        .retrieve()
-        .onStatus(HttpStatusCode::is4xxClientError,
-            response -> Mono.error(new UserNotFoundException("User Not Found!")))
-        .bodyToMono(UserDTO.class)
-        .onErrorMap(Predicate.not(UserNotFoundException.class::isInstance),
-            throwable -> new ExternalAPIErrorException("External API Error"))
-        .block();
+  public Mono<Void> validateUserId(Integer userId) {
+    return Mono.defer(() -> {
+      if (knownUsers.get(userId) != null) {
+        userValidationSaved.increment(userValidationTimer.mean(TimeUnit.SECONDS));
+        return Mono.empty();
+      }
+      if (unknownUsers.get(userId) != null) {
+        userValidationSaved.increment(userValidationTimer.mean(TimeUnit.SECONDS));
+        return Mono.error(new UserNotFoundException("User Not Found!"));
+      }
+      return fetchUser(userId)
+          .doOnSuccess(user -> knownUsers.put(userId, Boolean.TRUE))
+          .doOnError(UserNotFoundException.class,
+              exception -> unknownUsers.put(userId, Boolean.TRUE))
+          .then();
+    });
+  }
+
+  private Mono<UserDTO> fetchUser(Integer userId) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start();
+      return webClient.get()
+          .uri(uriBuilder -> uriBuilder.pathSegment("users", userId.toString()).build())
+          .retrieve()
+          .onStatus(ExternalAPIServiceImpl::isNotFound,
+              response -> Mono.error(new UserNotFoundException("User Not Found!")))
+          .bodyToMono(UserDTO.class)
+          .onErrorMap(Predicate.not(UserNotFoundException.class::isInstance),
+              throwable -> new ExternalAPIErrorException("External API Error"))
+          .doFinally(signalType -> sample.stop(userValidationTimer));
+    }).transform(resilience::read)
+        .transform(call -> postMetrics.timeExternalAPI("validateUserId", call));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUpKnownUsers() {
+    if (!warmUpKnownUsers) {
+      return;
+    }
+    try {
+      List<UserDTO> users = webClient.get()
+          .uri(uriBuilder -> uriBuilder.pathSegment("users").build())
+          .retrieve()
+          .bodyToMono(new ParameterizedTypeReference<List<UserDTO>>() {
+          })
+          .block();
+      if (users != null) {
+        users.forEach(user -> knownUsers.put(user.getId(), Boolean.TRUE));
+        log.info("Known users cache warmed up with {} users", users.size());
+      }
+    } catch (RuntimeException exception) {
+      log.warn("Known users cache warm-up failed: {}", exception.getMessage());
+    }
+  }
+
+  // Only a 404 means the post or user is missing. Other client errors (429, 408, 401, ...) are
+  // answered like server errors with ExternalAPIErrorException: reads retry them and the outbox
+  // dispatcher sends the mutation again later, instead of dead-lettering it.
+  private static boolean isNotFound(HttpStatusCode status) {
+    return status.isSameCodeAs(HttpStatus.NOT_FOUND);
   }
 
   @Override
-  public Post savePost(PostDTO inputPost) {
+  public Mono<Post> savePost(PostDTO inputPost) {
+    return savePost(inputPost, null);
+  }
+
+  // A create sent again with the same Idempotency-Key can be answered by external API with the
+  // post it stored the first time, so a timeout after it accepted the post doesn't create two
+  @Override
+  public Mono<Post> savePost(PostDTO inputPost, String idempotencyKey) {
     return webClient.post()
         .uri(uriBuilder -> uriBuilder.pathSegment("posts").build())
+        .headers(headers -> {
+          if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+          }
+        })
         .bodyValue(inputPost)
         .retrieve()
         .bodyToMono(Post.class)
         .onErrorMap(throwable -> new ExternalAPIErrorException("External API Error"))
-        .block();
+        .transform(resilience::write)
+        .transform(call -> postMetrics.timeExternalAPI("savePost", call));
   }
 
   @Override
-  public Post findPostById(Integer id) {
+  public Mono<Post> findPostById(Integer id) {
     return webClient.get()
         .uri(uriBuilder -> uriBuilder.pathSegment("posts", id.toString()).build())
         .retrieve()
-        .onStatus(HttpStatusCode::is4xxClientError,
+        .onStatus(ExternalAPIServiceImpl::isNotFound,
             response -> Mono.error(new PostNotFoundException("Post Not Found")))
         .bodyToMono(Post.class)
         .onErrorMap(Predicate.not(PostNotFoundException.class::isInstance),
             throwable -> new ExternalAPIErrorException("External API Error"))
-        .block();
+        .transform(resilience::read)
+        .transform(call -> postMetrics.timeExternalAPI("findPostById", call));
   }
 
   @Override
-  public List<Post> findPostsByUserId(Integer userId) {
+  public Flux<Post> findPostsByUserId(Integer userId) {
     return webClient.get()
         .uri(uriBuilder -> uriBuilder
             .pathSegment("posts").queryParam("userId", userId).build())
         .retrieve()
-        .bodyToMono(new ParameterizedTypeReference<List<Post>>() {
-        })
+        .bodyToFlux(Post.class)
         .onErrorMap(throwable -> new ExternalAPIErrorException("External API Error"))
-        .block();
+        .transform(resilience::read)
+        .transform(call -> postMetrics.timeExternalAPI("findPostsByUserId", call));
   }
 
+  // the whole updated post is sent, callers hold the local copy, so it isn't fetched first
   @Override
-  public Post updatePostById(Integer id, PostUpdateDTO inputPost) {
-    Post post = findPostById(id);
-    if (inputPost.getTitle() != null) {
-      post.setTitle(inputPost.getTitle());
-    }
-    if (inputPost.getBody() != null) {
-      post.setBody(inputPost.getBody());
-    }
+  public Mono<Post> replacePost(Post post) {
     return webClient.put()
-        .uri(uriBuilder -> uriBuilder.pathSegment("posts", id.toString()).build())
+        .uri(uriBuilder -> uriBuilder.pathSegment("posts", post.getId().toString()).build())
         .bodyValue(post)
         .retrieve()
-        .onStatus(HttpStatusCode::is4xxClientError,
+        .onStatus(ExternalAPIServiceImpl::isNotFound,
             response -> Mono.error(new PostNotFoundException("Post Not Found")))
         .bodyToMono(Post.class)
         .onErrorMap(Predicate.not(PostNotFoundException.class::isInstance),
             throwable -> new ExternalAPIErrorException("External API Error"))
-        .block();
+        .transform(resilience::write)
+        .transform(call -> postMetrics.timeExternalAPI("replacePost", call));
   }
 
   @Override
-  public void deletePostById(Integer id) {
-    webClient.delete()
+  public Mono<Void> deletePostById(Integer id) {
+    return webClient.delete()
         .uri(uriBuilder -> uriBuilder.pathSegment("posts", id.toString()).build())
         .retrieve()
-        .onStatus(HttpStatusCode::is4xxClientError,
+        .onStatus(ExternalAPIServiceImpl::isNotFound,
             response -> Mono.error(new PostNotFoundException("Post Not Found")))
         .bodyToMono(Post.class)
         .onErrorMap(Predicate.not(PostNotFoundException.class::isInstance),
             throwable -> new ExternalAPIErrorException("External API Error"))
-        .block();
+        .transform(resilience::write)
+        .transform(call -> postMetrics.timeExternalAPI("deletePostById", call))
+        .then();
   }
 }
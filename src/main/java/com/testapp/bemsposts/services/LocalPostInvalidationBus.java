@@ -0,0 +1,50 @@
+package com.testapp.bemsposts.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// =======================================
+// *** In-memory post invalidation bus ***
+// =======================================
+// Used by a single instance, which has nobody to tell, and by tests: a bus created by join()
+// stands for another instance in the same in-memory cluster.
+@Component
+@ConditionalOnProperty(name = "posts.cache.invalidation", havingValue = "local")
+public class LocalPostInvalidationBus implements PostInvalidationBus {
+  private final Set<LocalPostInvalidationBus> cluster;
+  private final List<Consumer<Integer>> evictListeners = new CopyOnWriteArrayList<>();
+
+  public LocalPostInvalidationBus() {
+    this(new CopyOnWriteArraySet<>());
+  }
+
+  private LocalPostInvalidationBus(Set<LocalPostInvalidationBus> cluster) {
+    this.cluster = cluster;
+    cluster.add(this);
+  }
+
+  public LocalPostInvalidationBus join() {
+    return new LocalPostInvalidationBus(cluster);
+  }
+
+  @Override
+  public void publish(Collection<Integer> postIds) {
+    for (LocalPostInvalidationBus instance : cluster) {
+      if (instance != this) {
+        postIds.forEach(postId -> instance.evictListeners.forEach(evict -> evict.accept(postId)));
+      }
+    }
+  }
+
+  // nothing is ever missed in memory, so evictAll isn't needed
+  @Override
+  public void subscribe(Consumer<Integer> evict, Runnable evictAll) {
+    evictListeners.add(evict);
+  }
+}
@@ -0,0 +1,14 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.PostBatchItemDTO;
+import com.testapp.bemsposts.models.PostDTO;
+import java.util.List;
+
+// Results are returned in the order of the input, one item per input element
+public interface PostBatchService {
+  List<PostBatchItemDTO> addPosts(List<PostDTO> inputPosts);
+
+  List<PostBatchItemDTO> findByIds(List<Integer> ids);
+
+  List<PostBatchItemDTO> deletePostsByIds(List<Integer> ids);
+}
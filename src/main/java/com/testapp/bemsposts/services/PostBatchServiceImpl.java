@@ -0,0 +1,291 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.exceptions.BatchTooLargeException;
+import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
+import com.testapp.bemsposts.exceptions.NullInputException;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.exceptions.UserNotFoundException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostBatchItemDTO;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// ===========================
+// *** Batch Post Services ***
+// ===========================
+// Each distinct userId is validated once, external API calls of a batch run in parallel up to
+// posts.batch.external-api-concurrency, and the DB is written with one saveAll, so Hibernate can
+// group the inserts into JDBC batches. A failing item doesn't fail the batch. In write-behind mode
+// posts are created and deleted like the single post endpoints do it, locally in one transaction
+// with their pending external API mutations, and posts with a pending delete aren't fetched back.
+@Service
+public class PostBatchServiceImpl implements PostBatchService {
+  private final PostRepository postRepository;
+  private final ExternalAPIService externalAPIService;
+  private final PostOutboxService postOutboxService;
+  private final Cache postCache;
+  private final PostInvalidationBus postInvalidationBus;
+  private final PostWriteMode writeMode;
+  private final int maxBatchSize;
+  private final int externalAPIConcurrency;
+
+  @Autowired
+  public PostBatchServiceImpl(
+      PostRepository postRepository,
+      ExternalAPIService externalAPIService,
+      PostOutboxService postOutboxService,
+      CacheManager cacheManager,
+      PostInvalidationBus postInvalidationBus,
+      @Value("${posts.external-api.write-mode}") PostWriteMode writeMode,
+      @Value("${posts.batch.max-size}") int maxBatchSize,
+      @Value("${posts.batch.external-api-concurrency}") int externalAPIConcurrency
+  ) {
+    this.postRepository = postRepository;
+    this.externalAPIService = externalAPIService;
+    this.postOutboxService = postOutboxService;
+    this.postCache = cacheManager.getCache(CacheConfiguration.POSTS_CACHE);
+    this.postInvalidationBus = postInvalidationBus;
+    this.writeMode = writeMode;
+    this.maxBatchSize = maxBatchSize;
+    this.externalAPIConcurrency = externalAPIConcurrency;
+  }
+
+  // ------------------------------
+  // *** Services for new Posts ***
+  // ------------------------------
+  @Override
+  public List<PostBatchItemDTO> addPosts(List<PostDTO> inputPosts) {
+    checkBatchSize(inputPosts.size());
+    Map<Integer, Optional<RuntimeException>> userChecks = validateUserIds(inputPosts);
+    if (writeMode.isWriteBehind()) {
+      return createLocally(inputPosts, userChecks);
+    }
+    List<PostBatchItemDTO> items = Flux.fromIterable(inputPosts)
+        .flatMapSequential(inputPost -> {
+          RuntimeException invalidInput = validateInput(inputPost, userChecks);
+          if (invalidInput != null) {
+            return Mono.just(failed(null, invalidInput));
+          }
+          return externalAPIService.savePost(inputPost)
+              .map(post -> new PostBatchItemDTO(
+                  post.getId(), HttpStatus.CREATED.value(), post, null))
+              .onErrorResume(RuntimeException.class,
+                  exception -> Mono.just(failed(null, exception)));
+        }, externalAPIConcurrency)
+        .collectList()
+        .block();
+    savePosts(items);
+    postInvalidationBus.publish(items.stream()
+        .filter(item -> item.getPost() != null)
+        .map(PostBatchItemDTO::getId)
+        .distinct()
+        .toList());
+    return items;
+  }
+
+  private List<PostBatchItemDTO> createLocally(
+      List<PostDTO> inputPosts, Map<Integer, Optional<RuntimeException>> userChecks) {
+    List<PostBatchItemDTO> items = new ArrayList<>();
+    List<PostDTO> validPosts = new ArrayList<>();
+    for (PostDTO inputPost : inputPosts) {
+      RuntimeException invalidInput = validateInput(inputPost, userChecks);
+      items.add(invalidInput == null ? null : failed(null, invalidInput));
+      if (invalidInput == null) {
+        validPosts.add(inputPost);
+      }
+    }
+    Iterator<Post> createdPosts = validPosts.isEmpty()
+        ? Collections.emptyIterator()
+        : postOutboxService.createPosts(validPosts).iterator();
+    List<Integer> createdIds = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) {
+      if (items.get(i) == null) {
+        Post post = createdPosts.next();
+        postCache.put(post.getId(), post);
+        createdIds.add(post.getId());
+        items.set(i, new PostBatchItemDTO(post.getId(), HttpStatus.CREATED.value(), post, null));
+      }
+    }
+    postInvalidationBus.publish(createdIds);
+    return items;
+  }
+
+  // one external API call per distinct userId, the result of each check is shared by its posts
+  private Map<Integer, Optional<RuntimeException>> validateUserIds(List<PostDTO> inputPosts) {
+    List<Integer> userIds = inputPosts.stream()
+        .map(PostDTO::getUserId)
+        .filter(userId -> userId != null && userId > 0)
+        .distinct()
+        .toList();
+    return Flux.fromIterable(userIds)
+        .flatMap(userId -> externalAPIService.validateUserId(userId)
+            .then(Mono.just(Optional.<RuntimeException>empty()))
+            .onErrorResume(RuntimeException.class,
+                exception -> Mono.just(Optional.of(exception)))
+            .map(check -> Map.entry(userId, check)), externalAPIConcurrency)
+        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+        .block();
+  }
+
+  private static RuntimeException validateInput(
+      PostDTO inputPost, Map<Integer, Optional<RuntimeException>> userChecks) {
+    RuntimeException inputError = PostRequests.inputError(inputPost);
+    if (inputError != null) {
+      return inputError;
+    }
+    return userChecks.get(inputPost.getUserId()).orElse(null);
+  }
+
+  // --------------------------------
+  // *** Services for find by Ids ***
+  // --------------------------------
+  // Cache first, then one DB query for the rest, external API only for posts missing locally
+  @Override
+  public List<PostBatchItemDTO> findByIds(List<Integer> ids) {
+    checkBatchSize(ids.size());
+    Map<Integer, PostBatchItemDTO> items = new HashMap<>();
+    List<Integer> uncachedIds = new ArrayList<>();
+    for (Integer id : new LinkedHashSet<>(ids)) {
+      Post cachedPost = postCache.get(id, Post.class);
+      if (cachedPost != null) {
+        items.put(id, found(id, cachedPost));
+      } else {
+        uncachedIds.add(id);
+      }
+    }
+    for (Post post : postRepository.findAllById(uncachedIds)) {
+      postCache.put(post.getId(), post);
+      items.put(post.getId(), found(post.getId(), post));
+    }
+    List<Integer> missingIds = uncachedIds.stream()
+        .filter(id -> !items.containsKey(id))
+        .toList();
+    if (writeMode.isWriteBehind()) {
+      // deleted locally, or the upstream copies of posts created locally
+      Set<Integer> hiddenIds = postOutboxService.findHiddenUpstreamIds(missingIds);
+      hiddenIds.forEach(id ->
+          items.put(id, failed(id, new PostNotFoundException("Post Not Found"))));
+      missingIds = missingIds.stream().filter(id -> !hiddenIds.contains(id)).toList();
+    }
+    List<PostBatchItemDTO> externalItems = Flux.fromIterable(missingIds)
+        .flatMap(id -> externalAPIService.findPostById(id)
+            .map(post -> found(id, post))
+            .onErrorResume(RuntimeException.class,
+                exception -> Mono.just(failed(id, exception))), externalAPIConcurrency)
+        .collectList()
+        .block();
+    savePosts(externalItems);
+    externalItems.forEach(item -> items.put(item.getId(), item));
+    return ids.stream().map(items::get).toList();
+  }
+
+  // ---------------------------------
+  // *** Services for Posts Delete ***
+  // ---------------------------------
+  @Override
+  public List<PostBatchItemDTO> deletePostsByIds(List<Integer> ids) {
+    checkBatchSize(ids.size());
+    if (writeMode.isWriteBehind()) {
+      return deleteLocally(ids);
+    }
+    Map<Integer, PostBatchItemDTO> items = Flux.fromIterable(new LinkedHashSet<>(ids))
+        .flatMap(id -> externalAPIService.deletePostById(id)
+            .then(Mono.just(new PostBatchItemDTO(id, HttpStatus.OK.value(), null, null)))
+            .onErrorResume(RuntimeException.class,
+                exception -> Mono.just(failed(id, exception))), externalAPIConcurrency)
+        .collectMap(PostBatchItemDTO::getId)
+        .block();
+    List<Integer> deletedIds = items.values().stream()
+        .filter(item -> item.getError() == null)
+        .map(PostBatchItemDTO::getId)
+        .toList();
+    if (!deletedIds.isEmpty()) {
+      postRepository.deleteAllByIdInBatch(deletedIds);
+      deletedIds.forEach(postCache::evict);
+      postInvalidationBus.publish(deletedIds);
+    }
+    return ids.stream().map(items::get).toList();
+  }
+
+  private List<PostBatchItemDTO> deleteLocally(List<Integer> ids) {
+    List<Integer> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+    postOutboxService.deletePosts(distinctIds);
+    distinctIds.forEach(postCache::evict);
+    postInvalidationBus.publish(distinctIds);
+    return ids.stream()
+        .map(id -> new PostBatchItemDTO(id, HttpStatus.OK.value(), null, null))
+        .toList();
+  }
+
+  private void checkBatchSize(int size) {
+    if (size > maxBatchSize) {
+      throw new BatchTooLargeException("Batch is limited to " + maxBatchSize + " items");
+    }
+  }
+
+  // Items get the stored posts, which carry the version. External API may answer several posts
+  // with one id (jsonplaceholder gives every new post id 101), only the last of them is stored,
+  // the other items keep the post external API answered them with.
+  private void savePosts(List<PostBatchItemDTO> items) {
+    List<Post> posts = items.stream()
+        .map(PostBatchItemDTO::getPost)
+        .filter(Objects::nonNull)
+        .toList();
+    if (posts.isEmpty()) {
+      return;
+    }
+    Map<Integer, Post> savedPosts = new HashMap<>();
+    for (Post post : postRepository.saveAllFromExternalAPI(posts)) {
+      savedPosts.put(post.getId(), post);
+      postCache.put(post.getId(), post);
+    }
+    for (PostBatchItemDTO item : items) {
+      Post savedPost = item.getPost() == null ? null : savedPosts.get(item.getPost().getId());
+      if (savedPost != null && isSameContent(savedPost, item.getPost())) {
+        item.setPost(savedPost);
+      }
+    }
+  }
+
+  private static boolean isSameContent(Post post, Post otherPost) {
+    return Objects.equals(post.getUserId(), otherPost.getUserId())
+        && Objects.equals(post.getTitle(), otherPost.getTitle())
+        && Objects.equals(post.getBody(), otherPost.getBody());
+  }
+
+  private static PostBatchItemDTO found(Integer id, Post post) {
+    return new PostBatchItemDTO(id, HttpStatus.OK.value(), post, null);
+  }
+
+  // same statuses as PostExceptionHandler gives the single post endpoints
+  private static PostBatchItemDTO failed(Integer id, RuntimeException exception) {
+    HttpStatus status = switch (exception) {
+      case PostNotFoundException notFound -> HttpStatus.NOT_FOUND;
+      case UserNotFoundException userNotFound -> HttpStatus.BAD_REQUEST;
+      case NullInputException nullInput -> HttpStatus.BAD_REQUEST;
+      case ExternalAPIErrorException externalAPIError -> HttpStatus.SERVICE_UNAVAILABLE;
+      default -> HttpStatus.INTERNAL_SERVER_ERROR;
+    };
+    return new PostBatchItemDTO(id, status.value(), null, exception.getMessage());
+  }
+}
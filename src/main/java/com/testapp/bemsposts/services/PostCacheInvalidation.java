@@ -0,0 +1,52 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.models.Post;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+// ====================================================
+// *** Eviction of posts changed by other instances ***
+// ====================================================
+// Evicts the post cache and, when enabled (prod profile), the Hibernate second-level cache. Pages
+// in the query cache may hold the post too, so the query cache is cleared as a whole.
+@Component
+public class PostCacheInvalidation {
+  private final Cache postCache;
+  private final jakarta.persistence.Cache secondLevelCache;
+  private final SessionFactory sessionFactory;
+
+  @Autowired
+  public PostCacheInvalidation(
+      CacheManager cacheManager,
+      EntityManagerFactory entityManagerFactory,
+      PostInvalidationBus postInvalidationBus
+  ) {
+    this.postCache = cacheManager.getCache(CacheConfiguration.POSTS_CACHE);
+    this.secondLevelCache = entityManagerFactory.getCache();
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    postInvalidationBus.subscribe(this::evict, this::evictAll);
+  }
+
+  private void evict(Integer postId) {
+    postCache.evict(postId);
+    secondLevelCache.evict(Post.class, postId);
+    evictQueryCache();
+  }
+
+  private void evictAll() {
+    postCache.clear();
+    secondLevelCache.evict(Post.class);
+    evictQueryCache();
+  }
+
+  private void evictQueryCache() {
+    if (sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled()) {
+      sessionFactory.getCache().evictDefaultQueryRegion();
+    }
+  }
+}
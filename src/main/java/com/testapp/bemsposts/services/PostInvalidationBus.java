@@ -0,0 +1,14 @@
+package com.testapp.bemsposts.services;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// Tells the other instances of the MS which posts changed, so they evict their cached copies
+public interface PostInvalidationBus {
+  // called after the change is stored, the instance itself isn't notified
+  void publish(Collection<Integer> postIds);
+
+  // evict gets the id of a post changed by another instance, evictAll is run when invalidations
+  // may have been missed, e.g. after the bus lost its connection
+  void subscribe(Consumer<Integer> evict, Runnable evictAll);
+}
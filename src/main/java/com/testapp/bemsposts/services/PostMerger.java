@@ -0,0 +1,86 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// =====================================================
+// *** Merge of internal and external posts by id ***
+// =====================================================
+// Internal posts come sorted by id from the DB, external posts are sorted only when the external
+// API didn't already do it. A single pass then emits posts in ascending id order, an internal post
+// wins over an external post with the same id. No lookup structure and no boxing is needed, and
+// neither input list is modified.
+final class PostMerger {
+  private static final Comparator<Post> BY_ID = Comparator.comparingInt(Post::getId);
+
+  private PostMerger() {
+  }
+
+  static List<Post> merge(List<Post> internalPosts, List<Post> externalPosts) {
+    List<Post> posts = new ArrayList<>(internalPosts.size() + externalPosts.size());
+    merge(internalPosts.iterator(), externalPosts, posts::add);
+    return posts;
+  }
+
+  // One keyset page of merged posts with id above afterId. internalPosts must hold the first
+  // limit + 1 internal posts of that range, so the next page is detected without another query.
+  static PostListDTO mergePage(List<Post> internalPosts, List<Post> externalPosts, int afterId,
+                               int limit, boolean partial) {
+    List<Post> posts = new ArrayList<>(limit);
+    Integer nextCursor = null;
+    for (Post post : merge(internalPosts, externalPosts)) {
+      if (post.getId() <= afterId) {
+        continue;
+      }
+      if (posts.size() == limit) {
+        nextCursor = posts.get(limit - 1).getId();
+        break;
+      }
+      posts.add(post);
+    }
+    return new PostListDTO(posts, partial, nextCursor);
+  }
+
+  // Streaming variant, each merged post goes straight to the sink
+  static void merge(Iterator<Post> internalPosts, List<Post> externalPosts, Consumer<Post> sink) {
+    List<Post> external = sortedById(externalPosts);
+    int externalIndex = 0;
+    Post internal = internalPosts.hasNext() ? internalPosts.next() : null;
+    boolean emitted = false;
+    int lastId = 0;
+    while (internal != null || externalIndex < external.size()) {
+      Post next;
+      if (internal == null) {
+        next = external.get(externalIndex++);
+      } else if (externalIndex == external.size()
+          || internal.getId() <= external.get(externalIndex).getId()) {
+        next = internal;
+        internal = internalPosts.hasNext() ? internalPosts.next() : null;
+      } else {
+        next = external.get(externalIndex++);
+      }
+      // an equal id was already emitted from the internal side
+      if (!emitted || next.getId() != lastId) {
+        sink.accept(next);
+        emitted = true;
+        lastId = next.getId();
+      }
+    }
+  }
+
+  private static List<Post> sortedById(List<Post> posts) {
+    for (int i = 1; i < posts.size(); i++) {
+      if (posts.get(i - 1).getId() > posts.get(i).getId()) {
+        List<Post> sorted = new ArrayList<>(posts);
+        sorted.sort(BY_ID);
+        return sorted;
+      }
+    }
+    return posts;
+  }
+}
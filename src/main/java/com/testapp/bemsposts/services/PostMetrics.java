@@ -0,0 +1,125 @@
+package com.testapp.bemsposts.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// ====================================
+// *** Metrics of the Post services ***
+// ====================================
+// Timers carry the exception the call ended with ("none" on success, "cancelled" when the caller
+// gave up), histograms and percentiles are configured under management.metrics.distribution.
+public class PostMetrics {
+  public static final String SERVICE_TIMER = "posts.service";
+  public static final String EXTERNAL_API_TIMER = "posts.external-api";
+  public static final String FIND_BY_ID_COUNTER = "posts.find-by-id";
+  public static final String MERGE_SIZE_SUMMARY = "posts.merge.size";
+
+  private static final String NONE = "none";
+  private static final String CANCELLED = "cancelled";
+
+  private final MeterRegistry meterRegistry;
+
+  public PostMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  // -------------------------------------------
+  // *** Blocking and reactive service calls ***
+  // -------------------------------------------
+  public <T> T timeService(String method, Supplier<T> call) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = NONE;
+    try {
+      return call.get();
+    } catch (RuntimeException thrown) {
+      exception = thrown.getClass().getSimpleName();
+      throw thrown;
+    } finally {
+      sample.stop(serviceTimer(method, "blocking", exception));
+    }
+  }
+
+  public void timeService(String method, Runnable call) {
+    timeService(method, () -> {
+      call.run();
+      return null;
+    });
+  }
+
+  public <T> Mono<T> timeService(String method, Mono<T> call) {
+    return time(call, exception -> serviceTimer(method, "reactive", exception));
+  }
+
+  private Timer serviceTimer(String method, String mode, String exception) {
+    return Timer.builder(SERVICE_TIMER)
+        .description("Post service calls")
+        .tag("method", method)
+        .tag("mode", mode)
+        .tag("exception", exception)
+        .register(meterRegistry);
+  }
+
+  // --------------------------
+  // *** External API calls ***
+  // --------------------------
+  // measured as the caller sees them, with retries and time spent waiting for the bulkhead
+  public <T> Mono<T> timeExternalAPI(String operation, Mono<T> call) {
+    return time(call, exception -> externalAPITimer(operation, exception));
+  }
+
+  public <T> Flux<T> timeExternalAPI(String operation, Flux<T> call) {
+    return Flux.defer(() -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      return call
+          .doOnComplete(() -> sample.stop(externalAPITimer(operation, NONE)))
+          .doOnError(thrown -> sample.stop(
+              externalAPITimer(operation, thrown.getClass().getSimpleName())))
+          .doOnCancel(() -> sample.stop(externalAPITimer(operation, CANCELLED)));
+    });
+  }
+
+  private Timer externalAPITimer(String operation, String exception) {
+    return Timer.builder(EXTERNAL_API_TIMER)
+        .description("External API calls")
+        .tag("operation", operation)
+        .tag("exception", exception)
+        .register(meterRegistry);
+  }
+
+  private <T> Mono<T> time(Mono<T> call, Function<String, Timer> timer) {
+    return Mono.defer(() -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      return call
+          .doOnSuccess(value -> sample.stop(timer.apply(NONE)))
+          .doOnError(thrown -> sample.stop(timer.apply(thrown.getClass().getSimpleName())))
+          .doOnCancel(() -> sample.stop(timer.apply(CANCELLED)));
+    });
+  }
+
+  // -----------------------------
+  // *** Where posts come from ***
+  // -----------------------------
+  // source is cache, db or external-api, coalesced callers are counted once by the caller that
+  // loaded the post
+  public void countFindById(String source) {
+    meterRegistry.counter(FIND_BY_ID_COUNTER, "source", source).increment();
+  }
+
+  public void recordMerge(int internalPosts, int externalPosts) {
+    mergeSize("internal").record(internalPosts);
+    mergeSize("external").record(externalPosts);
+  }
+
+  private DistributionSummary mergeSize(String side) {
+    return DistributionSummary.builder(MERGE_SIZE_SUMMARY)
+        .description("Posts going into a merge of internal and external posts")
+        .baseUnit("posts")
+        .tag("side", side)
+        .register(meterRegistry);
+  }
+}
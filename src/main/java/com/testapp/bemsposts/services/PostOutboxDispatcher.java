@@ -0,0 +1,192 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.exceptions.UserNotFoundException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostExternalId;
+import com.testapp.bemsposts.models.PostOutboxEntry;
+import com.testapp.bemsposts.models.PostOutboxOperation;
+import com.testapp.bemsposts.repositories.PostExternalIdRepository;
+import com.testapp.bemsposts.repositories.PostOutboxRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// =====================================================
+// *** Sends pending write-behind mutations upstream ***
+// =====================================================
+// Only due mutations are loaded. Posts are dispatched in parallel, mutations of one post strictly
+// in order: a failed mutation is retried with exponential backoff and holds back the later ones of
+// its post. A mutation is dead-lettered (kept in post_outbox, never sent again) once it failed
+// max-attempts times, or right away when external API answers it with 404, retrying that can't
+// succeed. Other client errors (429, 408, ...) are retried like server errors.
+//
+// Posts created here have a local id. The id external API answers the CREATE with is recorded in
+// post_external_ids and later mutations of the post are sent with it. When the CREATE itself was
+// dead-lettered, they are dead-lettered too, external API never got the post.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "posts.external-api.write-mode", havingValue = "write-behind")
+public class PostOutboxDispatcher {
+  private final PostOutboxRepository postOutboxRepository;
+  private final PostExternalIdRepository postExternalIdRepository;
+  private final ExternalAPIService externalAPIService;
+  private final int batchSize;
+  private final int concurrency;
+  private final Duration retryBackoff;
+  private final Duration maxRetryBackoff;
+  private final int maxAttempts;
+
+  @Autowired
+  public PostOutboxDispatcher(
+      PostOutboxRepository postOutboxRepository,
+      PostExternalIdRepository postExternalIdRepository,
+      ExternalAPIService externalAPIService,
+      @Value("${posts.outbox.batch-size}") int batchSize,
+      @Value("${posts.outbox.concurrency}") int concurrency,
+      @Value("${posts.outbox.retry-backoff}") Duration retryBackoff,
+      @Value("${posts.outbox.max-retry-backoff}") Duration maxRetryBackoff,
+      @Value("${posts.outbox.max-attempts}") int maxAttempts
+  ) {
+    this.postOutboxRepository = postOutboxRepository;
+    this.postExternalIdRepository = postExternalIdRepository;
+    this.externalAPIService = externalAPIService;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+    this.retryBackoff = retryBackoff;
+    this.maxRetryBackoff = maxRetryBackoff;
+    this.maxAttempts = maxAttempts;
+  }
+
+  private enum Status {
+    DELIVERED,
+    RETRY,
+    DEAD_LETTER
+  }
+
+  private record Outcome(PostOutboxEntry entry, Status status) {
+  }
+
+  // a mutation of a post created here, which external API doesn't know yet
+  private static class NotCreatedUpstreamException extends RuntimeException {
+    NotCreatedUpstreamException() {
+      super("Post was never created by external API");
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${posts.outbox.dispatch-interval-ms}")
+  public void dispatch() {
+    Instant now = Instant.now();
+    List<PostOutboxEntry> entries =
+        postOutboxRepository.findDue(now, PageRequest.ofSize(batchSize));
+    if (entries.isEmpty()) {
+      return;
+    }
+    Map<Integer, List<PostOutboxEntry>> entriesByPost = entries.stream()
+        .collect(Collectors.groupingBy(
+            PostOutboxEntry::getPostId, LinkedHashMap::new, Collectors.toList()));
+    // set by a CREATE dispatched in this run, read by the later mutations of the post
+    Map<Integer, AtomicReference<PostExternalId>> externalIds = new HashMap<>();
+    entriesByPost.keySet().forEach(postId -> externalIds.put(postId, new AtomicReference<>()));
+    postExternalIdRepository.findAllById(entriesByPost.keySet())
+        .forEach(externalId -> externalIds.get(externalId.getPostId()).set(externalId));
+    List<Outcome> outcomes = Flux.fromIterable(entriesByPost.entrySet())
+        .flatMap(postEntries -> dispatchInOrder(postEntries.getValue(),
+            externalIds.get(postEntries.getKey()), now), concurrency)
+        .collectList()
+        .block();
+
+    List<Long> deliveredIds = outcomes.stream()
+        .filter(outcome -> outcome.status() == Status.DELIVERED)
+        .map(outcome -> outcome.entry().getId())
+        .toList();
+    List<PostOutboxEntry> undeliveredEntries = outcomes.stream()
+        .filter(outcome -> outcome.status() != Status.DELIVERED)
+        .map(Outcome::entry)
+        .toList();
+    List<PostExternalId> createdExternalIds = outcomes.stream()
+        .filter(outcome -> outcome.status() == Status.DELIVERED
+            && outcome.entry().getOperation() == PostOutboxOperation.CREATE)
+        .map(outcome -> externalIds.get(outcome.entry().getPostId()).get())
+        .toList();
+    if (!deliveredIds.isEmpty()) {
+      postOutboxRepository.deleteAllByIdInBatch(deliveredIds);
+    }
+    if (!undeliveredEntries.isEmpty()) {
+      postOutboxRepository.saveAll(undeliveredEntries);
+    }
+    if (!createdExternalIds.isEmpty()) {
+      postExternalIdRepository.saveAll(createdExternalIds);
+    }
+  }
+
+  // stops at the first entry of the post that fails and will be retried
+  private Flux<Outcome> dispatchInOrder(List<PostOutboxEntry> postEntries,
+                                        AtomicReference<PostExternalId> externalId, Instant now) {
+    return Flux.fromIterable(postEntries)
+        .concatMap(entry -> send(entry, externalId)
+            .thenReturn(new Outcome(entry, Status.DELIVERED))
+            .onErrorResume(exception -> Mono.just(failed(entry, exception, now))))
+        .takeUntil(outcome -> outcome.status() == Status.RETRY);
+  }
+
+  private Mono<?> send(PostOutboxEntry entry, AtomicReference<PostExternalId> externalId) {
+    if (entry.getOperation() == PostOutboxOperation.CREATE) {
+      // the local id keys every attempt of the CREATE, a retry isn't stored upstream twice
+      return externalAPIService.savePost(
+              new PostDTO(entry.getUserId(), entry.getTitle(), entry.getBody()),
+              "post-" + entry.getPostId())
+          .doOnNext(post -> externalId.set(new PostExternalId(entry.getPostId(), post.getId())));
+    }
+    Integer upstreamId = externalId.get() == null
+        ? entry.getPostId()
+        : externalId.get().getExternalId();
+    if (upstreamId == null) {
+      return Mono.error(new NotCreatedUpstreamException());
+    }
+    return switch (entry.getOperation()) {
+      case UPDATE -> externalAPIService.replacePost(
+          new Post(upstreamId, entry.getUserId(), entry.getTitle(), entry.getBody()));
+      case DELETE -> externalAPIService.deletePostById(upstreamId);
+      case CREATE -> throw new IllegalStateException();
+    };
+  }
+
+  private Outcome failed(PostOutboxEntry entry, Throwable exception, Instant now) {
+    entry.setAttempts(entry.getAttempts() + 1);
+    entry.setLastError(exception.getMessage());
+    if (exception instanceof PostNotFoundException
+        || exception instanceof UserNotFoundException
+        || exception instanceof NotCreatedUpstreamException
+        || entry.getAttempts() >= maxAttempts) {
+      entry.setDeadLetteredAt(now);
+      log.warn("Dead-lettering {} of post {} after {} attempts: {}", entry.getOperation(),
+          entry.getPostId(), entry.getAttempts(), exception.getMessage());
+      return new Outcome(entry, Status.DEAD_LETTER);
+    }
+    entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts())));
+    log.info("{} of post {} failed {} times, retrying at {}: {}", entry.getOperation(),
+        entry.getPostId(), entry.getAttempts(), entry.getNextAttemptAt(), exception.getMessage());
+    return new Outcome(entry, Status.RETRY);
+  }
+
+  private Duration backoff(int attempts) {
+    Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+    return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+  }
+}
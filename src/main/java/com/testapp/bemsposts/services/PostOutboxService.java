@@ -0,0 +1,32 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Local writes of write-behind mode, each one transaction with its pending external API mutation
+public interface PostOutboxService {
+  Post createPost(PostDTO inputPost);
+
+  // all posts in one transaction, in the order of the input
+  List<Post> createPosts(List<PostDTO> inputPosts);
+
+  Post updatePost(Post post, PostUpdateDTO inputPost);
+
+  void deletePost(Integer id);
+
+  void deletePosts(Collection<Integer> ids);
+
+  // External API still has these posts, but they mustn't be fetched and stored again: their
+  // delete is pending, or they are the upstream copies of posts created locally, which are
+  // stored under their local ids. One query per table for all ids.
+  Set<Integer> findHiddenUpstreamIds(Collection<Integer> ids);
+
+  boolean isHiddenUpstream(Integer id);
+
+  // the posts of external API without the hidden ones
+  List<Post> withoutHiddenUpstream(List<Post> externalPosts);
+}
@@ -0,0 +1,110 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostExternalId;
+import com.testapp.bemsposts.models.PostOutboxEntry;
+import com.testapp.bemsposts.models.PostOutboxOperation;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.repositories.PostExternalIdRepository;
+import com.testapp.bemsposts.repositories.PostOutboxRepository;
+import com.testapp.bemsposts.repositories.PostRepository;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class PostOutboxServiceImpl implements PostOutboxService {
+  private final PostRepository postRepository;
+  private final PostOutboxRepository postOutboxRepository;
+  private final PostExternalIdRepository postExternalIdRepository;
+
+  @Autowired
+  public PostOutboxServiceImpl(
+      PostRepository postRepository,
+      PostOutboxRepository postOutboxRepository,
+      PostExternalIdRepository postExternalIdRepository
+  ) {
+    this.postRepository = postRepository;
+    this.postOutboxRepository = postOutboxRepository;
+    this.postExternalIdRepository = postExternalIdRepository;
+  }
+
+  @Override
+  @Transactional
+  public Post createPost(PostDTO inputPost) {
+    return createPosts(List.of(inputPost)).get(0);
+  }
+
+  // posts get local ids, the dispatcher records the ids external API gives them on CREATE
+  @Override
+  @Transactional
+  public List<Post> createPosts(List<PostDTO> inputPosts) {
+    List<Post> posts = inputPosts.stream()
+        .map(inputPost -> new Post(Math.toIntExact(postRepository.nextLocalId()),
+            inputPost.getUserId(), inputPost.getTitle(), inputPost.getBody()))
+        .toList();
+    List<Post> savedPosts = postRepository.saveAll(posts);
+    postOutboxRepository.saveAll(savedPosts.stream()
+        .map(post -> new PostOutboxEntry(PostOutboxOperation.CREATE, post))
+        .toList());
+    postExternalIdRepository.saveAll(savedPosts.stream()
+        .map(post -> new PostExternalId(post.getId(), null))
+        .toList());
+    return savedPosts;
+  }
+
+  @Override
+  @Transactional
+  public Post updatePost(Post post, PostUpdateDTO inputPost) {
+    Post updatedPost = PostUpdates.store(postRepository, post, inputPost);
+    postOutboxRepository.save(new PostOutboxEntry(PostOutboxOperation.UPDATE, updatedPost));
+    return updatedPost;
+  }
+
+  @Override
+  @Transactional
+  public void deletePost(Integer id) {
+    deletePosts(List.of(id));
+  }
+
+  @Override
+  @Transactional
+  public void deletePosts(Collection<Integer> ids) {
+    postRepository.deleteAllByIdInBatch(ids);
+    postOutboxRepository.saveAll(ids.stream()
+        .map(id -> new PostOutboxEntry(PostOutboxOperation.DELETE, new Post(id, null, null, null)))
+        .toList());
+  }
+
+  // the upstream copy of a created post would otherwise be stored a second time under the id
+  // external API gave it, next to the local row
+  @Override
+  public Set<Integer> findHiddenUpstreamIds(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return Set.of();
+    }
+    Set<Integer> hiddenIds = new HashSet<>(
+        postOutboxRepository.findPostIdsByOperation(ids, PostOutboxOperation.DELETE));
+    hiddenIds.addAll(postExternalIdRepository.findMappedExternalIds(ids));
+    return hiddenIds;
+  }
+
+  @Override
+  public boolean isHiddenUpstream(Integer id) {
+    return !findHiddenUpstreamIds(List.of(id)).isEmpty();
+  }
+
+  @Override
+  public List<Post> withoutHiddenUpstream(List<Post> externalPosts) {
+    Set<Integer> hiddenIds =
+        findHiddenUpstreamIds(externalPosts.stream().map(Post::getId).toList());
+    return hiddenIds.isEmpty()
+        ? externalPosts
+        : externalPosts.stream().filter(post -> !hiddenIds.contains(post.getId())).toList();
+  }
+}
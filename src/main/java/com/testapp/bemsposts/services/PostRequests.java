@@ -0,0 +1,57 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.exceptions.NullInputException;
+import com.testapp.bemsposts.exceptions.UserNotFoundException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
+import java.util.List;
+import java.util.Optional;
+
+// ====================================================
+// *** Request handling shared by the Post services ***
+// ====================================================
+// The blocking, the non-blocking and the batch services differ only in how they wait, the checks
+// of the input and the paging of the posts of a user are the same for all of them.
+final class PostRequests {
+
+  private PostRequests() {
+  }
+
+  // what is wrong with a new post before external API is asked about its user, null when nothing
+  static RuntimeException inputError(PostDTO inputPost) {
+    if (inputPost.getTitle() == null && inputPost.getBody() == null) {
+      return new NullInputException("Input Data Not Found");
+    }
+    if (inputPost.getUserId() == null || inputPost.getUserId() < 1) {
+      return new UserNotFoundException("UserId must be positive number");
+    }
+    return null;
+  }
+
+  static void checkInput(PostDTO inputPost) {
+    RuntimeException error = inputError(inputPost);
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  static int afterId(Integer cursor) {
+    return cursor == null ? 0 : cursor;
+  }
+
+  static int pageSize(int limit, int maxPageSize) {
+    return Math.max(1, Math.min(limit, maxPageSize));
+  }
+
+  // Page of the posts of a user. Without external posts, because external API missed its
+  // deadline or is unavailable, the stored posts are returned as a partial result.
+  static PostListDTO userPostsPage(List<Post> internalPosts, Optional<List<Post>> externalPosts,
+                                   int afterId, int pageSize, PostMetrics postMetrics) {
+    if (externalPosts.isEmpty()) {
+      return PostMerger.mergePage(internalPosts, List.of(), afterId, pageSize, true);
+    }
+    postMetrics.recordMerge(internalPosts.size(), externalPosts.get().size());
+    return PostMerger.mergePage(internalPosts, externalPosts.get(), afterId, pageSize, false);
+  }
+}
@@ -0,0 +1,8 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.PostListDTO;
+
+// Searches the locally stored posts, best matches first
+public interface PostSearchService {
+  PostListDTO searchPosts(String query, Integer cursor, int limit);
+}
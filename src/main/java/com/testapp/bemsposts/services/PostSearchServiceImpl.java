@@ -0,0 +1,65 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.exceptions.NullInputException;
+import com.testapp.bemsposts.exceptions.SearchNotSupportedException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.stereotype.Service;
+
+// ============================
+// *** Post Search Services ***
+// ============================
+// Full-text search over title and body of the posts stored in the DB. External API can't search,
+// so posts it holds but the MS hasn't stored yet aren't found. Results are ranked, so the cursor
+// is the number of posts already returned rather than an id. The search needs PostgreSQL, on any
+// other DB (H2 in tests and load tests) it is rejected before the DB is queried.
+@Service
+public class PostSearchServiceImpl implements PostSearchService {
+  private final PostRepository postRepository;
+  private final PostMetrics postMetrics;
+  private final boolean supported;
+  private final int maxPageSize;
+  private final int maxCandidates;
+
+  @Autowired
+  public PostSearchServiceImpl(
+      PostRepository postRepository,
+      MeterRegistry meterRegistry,
+      @Value("${spring.datasource.url}") String datasourceUrl,
+      @Value("${posts.search.max-limit}") int maxPageSize,
+      @Value("${posts.search.max-candidates}") int maxCandidates
+  ) {
+    this.postRepository = postRepository;
+    this.postMetrics = new PostMetrics(meterRegistry);
+    this.supported = DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.POSTGRESQL;
+    this.maxPageSize = maxPageSize;
+    this.maxCandidates = maxCandidates;
+  }
+
+  @Override
+  public PostListDTO searchPosts(String query, Integer cursor, int limit) {
+    if (query == null || query.isBlank()) {
+      throw new NullInputException("Search Query Not Found");
+    }
+    if (!supported) {
+      throw new SearchNotSupportedException("Search Needs PostgreSQL");
+    }
+    int offset = cursor == null ? 0 : Math.max(0, cursor);
+    int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+    return postMetrics.timeService("searchPosts", () -> {
+      // one post more than the page tells whether there is a next page
+      List<Post> posts =
+          postRepository.search(query.strip(), offset, pageSize + 1, maxCandidates);
+      if (posts.size() <= pageSize) {
+        return new PostListDTO(posts, false, null);
+      }
+      return new PostListDTO(posts.subList(0, pageSize), false, offset + pageSize);
+    });
+  }
+}
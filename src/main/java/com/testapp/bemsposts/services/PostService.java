@@ -2,8 +2,10 @@ package com.testapp.bemsposts.services;
 
 import com.testapp.bemsposts.models.Post;
 import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
 import com.testapp.bemsposts.models.PostUpdateDTO;
-import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 
 public interface PostService {
@@ -12,7 +14,12 @@ public interface PostService {
 
   Post findById(Integer id);
 
-  List<Post> findPostsByUserId(Integer userId);
+  PostListDTO findPostsByUserId(Integer userId, Integer cursor, int limit);
+
+  // the page with ids and versions only, empty when it can't be told without external API
+  Optional<PostListDTO> findPostVersionsByUserId(Integer userId, Integer cursor, int limit);
+
+  void exportPostsByUserId(Integer userId, Consumer<Post> consumer);
 
   void deletePostById(Integer id);
 
@@ -1,16 +1,34 @@
 package com.testapp.bemsposts.services;
 
-import com.testapp.bemsposts.exceptions.NullInputException;
-import com.testapp.bemsposts.exceptions.UserNotFoundException;
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
+import com.testapp.bemsposts.exceptions.ExternalAPIUnavailableException;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.exceptions.PostVersionConflictException;
 import com.testapp.bemsposts.models.Post;
 import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
 import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
 import com.testapp.bemsposts.repositories.PostRepository;
-import java.util.ArrayList;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 // ==========================
 // *** Main Post Services ***
@@ -19,14 +37,44 @@ import org.springframework.stereotype.Service;
 public class PostServiceImpl implements PostService {
   private final PostRepository postRepository;
   private final ExternalAPIService externalAPIService;
+  private final PostOutboxService postOutboxService;
+  private final PostSyncService postSyncService;
+  private final Cache postCache;
+  private final PostInvalidationBus postInvalidationBus;
+  private final TransactionTemplate readOnlyTransaction;
+  private final PostMetrics postMetrics;
+  private final SingleFlight<Integer, Post> postByIdFlights = new SingleFlight<>();
+  private final SingleFlight<Integer, List<Post>> postsByUserIdFlights = new SingleFlight<>();
+  private final Duration userPostsDeadline;
+  private final int maxPageSize;
+  private final PostWriteMode writeMode;
 
   @Autowired
   public PostServiceImpl(
       PostRepository postRepository,
-      ExternalAPIService externalAPIService
+      ExternalAPIService externalAPIService,
+      PostOutboxService postOutboxService,
+      PostSyncService postSyncService,
+      CacheManager cacheManager,
+      PostInvalidationBus postInvalidationBus,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${posts.external-api.write-mode}") PostWriteMode writeMode,
+      @Value("${posts.external-api.user-posts-deadline}") Duration userPostsDeadline,
+      @Value("${posts.pagination.max-limit}") int maxPageSize
   ) {
     this.postRepository = postRepository;
     this.externalAPIService = externalAPIService;
+    this.postOutboxService = postOutboxService;
+    this.postSyncService = postSyncService;
+    this.postCache = cacheManager.getCache(CacheConfiguration.POSTS_CACHE);
+    this.postInvalidationBus = postInvalidationBus;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.postMetrics = new PostMetrics(meterRegistry);
+    this.writeMode = writeMode;
+    this.userPostsDeadline = userPostsDeadline;
+    this.maxPageSize = maxPageSize;
   }
 
   // -----------------------------
@@ -34,76 +82,206 @@ public class PostServiceImpl implements PostService {
   // -----------------------------
   @Override
   public Post addPost(PostDTO inputPost) {
+    return postMetrics.timeService("addPost", () -> createPost(inputPost));
+  }
+
+  private Post createPost(PostDTO inputPost) {
     validateInput(inputPost);
-    Post post = externalAPIService.savePost(inputPost);
-    savePost(post);
+    Post post;
+    if (writeMode.isWriteBehind()) {
+      post = postOutboxService.createPost(inputPost);
+      postCache.put(post.getId(), post);
+    } else {
+      post = savePost(externalAPIService.savePost(inputPost).block());
+    }
+    postInvalidationBus.publish(List.of(post.getId()));
     return post;
   }
 
   private void validateInput(PostDTO inputPost) {
-    if (inputPost.getTitle() == null && inputPost.getBody() == null) {
-      throw new NullInputException("Input Data Not Found");
-    }
-    if (inputPost.getUserId() < 1) {
-      throw new UserNotFoundException("UserId must be positive number");
-    }
-    externalAPIService.validateUserId(inputPost.getUserId());
+    PostRequests.checkInput(inputPost);
+    externalAPIService.validateUserId(inputPost.getUserId()).block();
   }
 
-  private void savePost(Post post) {
-    postRepository.save(post);
+  // every local write refreshes the cache, so reads never see an older copy than the DB, other
+  // instances are told about writes through the invalidation bus
+  private Post savePost(Post externalPost) {
+    Post post = postRepository.saveAllFromExternalAPI(List.of(externalPost)).get(0);
+    postCache.put(post.getId(), post);
+    return post;
   }
 
-
   // ------------------------------------
   // *** Services for find Post by Id ***
   // ------------------------------------
   @Override
   public Post findById(Integer id) {
+    return postMetrics.timeService("findById", () -> {
+      Post cachedPost = postCache.get(id, Post.class);
+      if (cachedPost != null) {
+        postMetrics.countFindById("cache");
+        return cachedPost;
+      }
+      return postByIdFlights.execute(id, () -> loadPost(id));
+    });
+  }
+
+  private Post loadPost(Integer id) {
     Optional<Post> myPost = postRepository.findById(id);
     if (myPost.isPresent()) {
+      postMetrics.countFindById("db");
+      postCache.put(id, myPost.get());
       return myPost.get();
+    } else if (writeMode.isWriteBehind() && postOutboxService.isHiddenUpstream(id)) {
+      throw new PostNotFoundException("Post Not Found");
     } else {
-      Post externalPost = externalAPIService.findPostById(id);
-      savePost(externalPost);
-      return externalPost;
+      postMetrics.countFindById("external-api");
+      return savePost(externalAPIService.findPostById(id).block());
     }
   }
 
+  // posts deleted or created locally in write-behind mode are left out of external API's list
+  private List<Post> withoutHiddenUpstream(List<Post> externalPosts) {
+    return writeMode.isWriteBehind()
+        ? postOutboxService.withoutHiddenUpstream(externalPosts)
+        : externalPosts;
+  }
+
   // ------------------------------------------
   // *** Services for find Posts by User Id ***
   // ------------------------------------------
 
+  // External API request is started first and runs while the DB is queried. When it misses the
+  // deadline or its circuit is open, the locally stored posts are returned as a partial result.
+  // Posts of a user the background sync keeps fresh are all stored, so only the DB is queried.
   @Override
-  public List<Post> findPostsByUserId(Integer userId) {
-    List<Post> internalPosts = postRepository.findAllByUserId(userId);
-    List<Post> externalPosts = externalAPIService.findPostsByUserId(userId);
-    return mergePosts(internalPosts, externalPosts);
+  public PostListDTO findPostsByUserId(Integer userId, Integer cursor, int limit) {
+    return postMetrics.timeService("findPostsByUserId",
+        () -> loadPostsByUserId(userId, cursor, limit));
   }
 
-  private List<Post> mergePosts(List<Post> internalPosts, List<Post> externalPosts) {
-    List<Integer> internalPostIds = new ArrayList<>();
-    for (Post element : internalPosts) {
-      internalPostIds.add(element.getId());
+  private PostListDTO loadPostsByUserId(Integer userId, Integer cursor, int limit) {
+    long deadline = System.nanoTime() + userPostsDeadline.toNanos();
+    int afterId = PostRequests.afterId(cursor);
+    int pageSize = PostRequests.pageSize(limit, maxPageSize);
+    postSyncService.userRequested(userId);
+    if (postSyncService.isFresh(userId)) {
+      List<Post> internalPosts = postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+          userId, afterId, Limit.of(pageSize + 1));
+      return PostMerger.mergePage(internalPosts, List.of(), afterId, pageSize, false);
     }
-    for (Post element : externalPosts) {
-      if (!internalPostIds.contains(element.getId())) {
-        internalPosts.add(element);
+    CompletableFuture<List<Post>> externalPosts = postsByUserIdFlights.executeAsync(userId,
+        () -> externalAPIService.findPostsByUserId(userId).collectList().toFuture());
+    List<Post> internalPosts = postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+        userId, afterId, Limit.of(pageSize + 1));
+    try {
+      long remaining = Math.max(0, deadline - System.nanoTime());
+      List<Post> external =
+          withoutHiddenUpstream(externalPosts.get(remaining, TimeUnit.NANOSECONDS));
+      return PostRequests.userPostsPage(
+          internalPosts, Optional.of(external), afterId, pageSize, postMetrics);
+    } catch (TimeoutException exception) {
+      return PostRequests.userPostsPage(
+          internalPosts, Optional.empty(), afterId, pageSize, postMetrics);
+    } catch (ExecutionException exception) {
+      if (exception.getCause() instanceof ExternalAPIUnavailableException) {
+        return PostRequests.userPostsPage(
+            internalPosts, Optional.empty(), afterId, pageSize, postMetrics);
+      }
+      if (exception.getCause() instanceof RuntimeException cause) {
+        throw cause;
       }
+      throw new ExternalAPIErrorException("External API Error");
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new ExternalAPIErrorException("External API Error");
     }
-    return internalPosts;
+  }
+
+  // Posts of a user the background sync keeps fresh are all stored, so the page, and so its ETag,
+  // is told by the DB alone. Only ids and versions are read, bodies and external API are skipped.
+  @Override
+  public Optional<PostListDTO> findPostVersionsByUserId(Integer userId, Integer cursor,
+                                                        int limit) {
+    return postMetrics.timeService("findPostVersionsByUserId", () -> {
+      postSyncService.userRequested(userId);
+      if (!postSyncService.isFresh(userId)) {
+        return Optional.empty();
+      }
+      int afterId = PostRequests.afterId(cursor);
+      int pageSize = PostRequests.pageSize(limit, maxPageSize);
+      List<Post> versions = postRepository
+          .findVersionsByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, Limit.of(pageSize + 1))
+          .stream()
+          .map(version -> new Post(version.getId(), userId, null, null, version.getVersion()))
+          .toList();
+      return Optional.of(PostMerger.mergePage(versions, List.of(), afterId, pageSize, false));
+    });
+  }
+
+  // -----------------------------------------------
+  // *** Services for export of Posts by User Id ***
+  // -----------------------------------------------
+  // Posts are handed to the consumer one by one while the DB cursor is read, only the external
+  // posts are held in memory. External API is asked before the read-only transaction starts, so
+  // no pooled connection is held while waiting for it.
+  @Override
+  public void exportPostsByUserId(Integer userId, Consumer<Post> consumer) {
+    postMetrics.timeService("exportPostsByUserId", () -> {
+      postSyncService.userRequested(userId);
+      List<Post> externalPosts = postSyncService.isFresh(userId)
+          ? List.of()
+          : withoutHiddenUpstream(
+              externalAPIService.findPostsByUserId(userId).collectList().block());
+      readOnlyTransaction.executeWithoutResult(status -> {
+        try (Stream<Post> internalPosts = postRepository.streamAllByUserId(userId)) {
+          PostMerger.merge(internalPosts.iterator(), externalPosts, consumer);
+        }
+      });
+    });
   }
 
   // --------------------------------
   // *** Services for Post Update ***
   // --------------------------------
+  // Works on the local copy, a post known only to external API is fetched and stored first
   @Override
   public Post updatePostById(Integer id, PostUpdateDTO inputPost) {
-    Post post = externalAPIService.updatePostById(id, inputPost);
-    if (post != null) {
-      savePost(post);
+    return postMetrics.timeService("updatePostById", () -> updatePost(id, inputPost));
+  }
+
+  private Post updatePost(Integer id, PostUpdateDTO inputPost) {
+    Post post = findById(id);
+    PostUpdates.checkVersion(post, inputPost);
+    Post updatedPost;
+    try {
+      if (writeMode.isWriteBehind()) {
+        updatedPost = postOutboxService.updatePost(post, inputPost);
+      } else {
+        updatedPost = PostUpdates.store(postRepository, post, inputPost);
+        replaceExternalPost(post, updatedPost);
+      }
+    } catch (PostVersionConflictException exception) {
+      // the cached copy may be the outdated one
+      postCache.evict(id);
+      throw exception;
+    }
+    postCache.put(id, updatedPost);
+    postInvalidationBus.publish(List.of(id));
+    return updatedPost;
+  }
+
+  // No connection is held while external API is waited for, so the stored update is undone,
+  // rather than rolled back, when the PUT fails
+  private void replaceExternalPost(Post post, Post updatedPost) {
+    try {
+      externalAPIService.replacePost(updatedPost).block();
+    } catch (RuntimeException exception) {
+      PostUpdates.undo(postRepository, post, updatedPost);
+      postCache.evict(post.getId());
+      postInvalidationBus.publish(List.of(post.getId()));
+      throw exception;
     }
-    return post;
   }
 
   // --------------------------------
@@ -111,7 +289,15 @@ public class PostServiceImpl implements PostService {
   // --------------------------------
   @Override
   public void deletePostById(Integer id) {
-    externalAPIService.deletePostById(id);
-    postRepository.deleteById(id);
+    postMetrics.timeService("deletePostById", () -> {
+      if (writeMode.isWriteBehind()) {
+        postOutboxService.deletePost(id);
+      } else {
+        externalAPIService.deletePostById(id).block();
+        postRepository.deleteAllByIdInBatch(List.of(id));
+      }
+      postCache.evict(id);
+      postInvalidationBus.publish(List.of(id));
+    });
   }
 }
@@ -0,0 +1,11 @@
+package com.testapp.bemsposts.services;
+
+// Refresh-ahead of the external posts of recently active users
+public interface PostSyncService {
+  // records a request for the posts of the user, who is then kept in sync for a while
+  void userRequested(Integer userId);
+
+  // true when the external posts of the user were stored within the freshness window, so the
+  // locally stored posts are the whole answer
+  boolean isFresh(Integer userId);
+}
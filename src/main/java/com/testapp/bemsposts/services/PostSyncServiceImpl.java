@@ -0,0 +1,195 @@
+package com.testapp.bemsposts.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// =================================================
+// *** Refresh-ahead sync of active users' posts ***
+// =================================================
+// Users whose posts were requested within posts.sync.active-for are synced in the background:
+// the stalest ones first, up to posts.sync.batch-size users per run and posts.sync.concurrency
+// external API calls at once. Only posts not stored yet are inserted, a stored post wins over the
+// external one as it does in the merge, so unchanged and locally changed rows aren't written.
+// While a user's last sync is younger than posts.sync.freshness, reads of the user's posts are
+// answered from the DB without waiting for external API. Inserted posts are published on the
+// invalidation bus, so other instances drop their cached pages of the user's posts.
+@Slf4j
+@Service
+public class PostSyncServiceImpl implements PostSyncService {
+  private final PostRepository postRepository;
+  private final ExternalAPIService externalAPIService;
+  private final PostOutboxService postOutboxService;
+  private final PostInvalidationBus postInvalidationBus;
+  private final Cache<Integer, UserSync> activeUsers;
+  private final boolean enabled;
+  private final Duration freshness;
+  private final Duration refreshAfter;
+  private final int batchSize;
+  private final int concurrency;
+  private final Timer syncTimer;
+  private final Counter storedPosts;
+  private final Counter failedUsers;
+  private final PostWriteMode writeMode;
+
+  @Autowired
+  public PostSyncServiceImpl(
+      PostRepository postRepository,
+      ExternalAPIService externalAPIService,
+      PostOutboxService postOutboxService,
+      PostInvalidationBus postInvalidationBus,
+      MeterRegistry meterRegistry,
+      @Value("${posts.external-api.write-mode}") PostWriteMode writeMode,
+      @Value("${posts.sync.enabled}") boolean enabled,
+      @Value("${posts.sync.active-for}") Duration activeFor,
+      @Value("${posts.sync.max-users}") long maxUsers,
+      @Value("${posts.sync.freshness}") Duration freshness,
+      @Value("${posts.sync.refresh-after}") Duration refreshAfter,
+      @Value("${posts.sync.batch-size}") int batchSize,
+      @Value("${posts.sync.concurrency}") int concurrency
+  ) {
+    this.postRepository = postRepository;
+    this.externalAPIService = externalAPIService;
+    this.postOutboxService = postOutboxService;
+    this.postInvalidationBus = postInvalidationBus;
+    this.activeUsers = Caffeine.newBuilder()
+        .maximumSize(maxUsers)
+        .expireAfterAccess(activeFor)
+        .build();
+    this.writeMode = writeMode;
+    this.enabled = enabled;
+    this.freshness = freshness;
+    this.refreshAfter = refreshAfter;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+    this.syncTimer = Timer.builder("posts.sync.run")
+        .description("Background sync runs of active users' posts")
+        .register(meterRegistry);
+    this.storedPosts = Counter.builder("posts.sync.stored")
+        .description("External posts stored by the background sync")
+        .register(meterRegistry);
+    this.failedUsers = Counter.builder("posts.sync.failures")
+        .description("Users whose external posts couldn't be fetched by the background sync")
+        .register(meterRegistry);
+    Gauge.builder("posts.sync.lag", this, PostSyncServiceImpl::lagSeconds)
+        .description("Age of the oldest sync of an active user")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+    Gauge.builder("posts.sync.active-users", activeUsers, Cache::estimatedSize)
+        .description("Users kept in sync")
+        .register(meterRegistry);
+  }
+
+  // the time of a user's last sync, or of the first request while it hasn't been synced yet
+  private static final class UserSync {
+    private final long requestedAt = System.nanoTime();
+    private volatile long syncedAt;
+    private volatile boolean synced;
+
+    long since() {
+      return synced ? syncedAt : requestedAt;
+    }
+  }
+
+  @Override
+  public void userRequested(Integer userId) {
+    if (enabled) {
+      activeUsers.get(userId, key -> new UserSync());
+    }
+  }
+
+  @Override
+  public boolean isFresh(Integer userId) {
+    if (!enabled) {
+      return false;
+    }
+    UserSync userSync = activeUsers.getIfPresent(userId);
+    return userSync != null && userSync.synced
+        && System.nanoTime() - userSync.syncedAt < freshness.toNanos();
+  }
+
+  private double lagSeconds() {
+    long now = System.nanoTime();
+    return activeUsers.asMap().values().stream()
+        .mapToLong(userSync -> now - userSync.since())
+        .max()
+        .orElse(0) / 1e9;
+  }
+
+  // ---------------------------
+  // *** Background sync run ***
+  // ---------------------------
+  @Scheduled(fixedDelayString = "${posts.sync.interval-ms}")
+  public void sync() {
+    if (!enabled) {
+      return;
+    }
+    long now = System.nanoTime();
+    List<Map.Entry<Integer, UserSync>> dueUsers = activeUsers.asMap().entrySet().stream()
+        .filter(user -> !user.getValue().synced
+            || now - user.getValue().syncedAt >= refreshAfter.toNanos())
+        .sorted(Comparator.comparingLong(user -> user.getValue().since()))
+        .limit(batchSize)
+        .toList();
+    if (dueUsers.isEmpty()) {
+      return;
+    }
+    syncTimer.record(() -> Flux.fromIterable(dueUsers)
+        .flatMap(user -> {
+          long startedAt = System.nanoTime();
+          return externalAPIService.findPostsByUserId(user.getKey()).collectList()
+              .map(posts -> new Fetched(user.getValue(), startedAt, posts))
+              .onErrorResume(exception -> {
+                failedUsers.increment();
+                log.debug("Sync of posts of user {} failed: {}", user.getKey(),
+                    exception.getMessage());
+                return Mono.empty();
+              });
+        }, concurrency)
+        .toStream()
+        .forEach(this::store));
+  }
+
+  private record Fetched(UserSync userSync, long startedAt, List<Post> posts) {
+  }
+
+  private void store(Fetched fetched) {
+    if (!fetched.posts().isEmpty()) {
+      List<Integer> ids = fetched.posts().stream().map(Post::getId).toList();
+      Set<Integer> skippedIds = new HashSet<>(postRepository.findStoredIds(ids));
+      if (writeMode.isWriteBehind()) {
+        skippedIds.addAll(postOutboxService.findHiddenUpstreamIds(ids));
+      }
+      List<Post> newPosts = fetched.posts().stream()
+          .filter(post -> !skippedIds.contains(post.getId()))
+          .toList();
+      if (!newPosts.isEmpty()) {
+        postRepository.saveAllFromExternalAPI(newPosts);
+        storedPosts.increment(newPosts.size());
+        postInvalidationBus.publish(newPosts.stream().map(Post::getId).toList());
+      }
+    }
+    // fresh as of the request, posts added upstream since may be missing until the next run
+    fetched.userSync().syncedAt = fetched.startedAt();
+    fetched.userSync().synced = true;
+  }
+}
@@ -0,0 +1,51 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.exceptions.PostVersionConflictException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.repositories.PostRepository;
+
+// ==========================================
+// *** Partial updates of versioned posts ***
+// ==========================================
+// The local copy of a post is authoritative: external API isn't asked for the post before an
+// update, it gets the updated post as a whole. Locally only title and body are written, guarded
+// by the version, so of two concurrent updates of one version the second fails with 409. The
+// guarded local write comes first, so a conflict never reaches external API, and is undone when
+// external API refuses the update.
+final class PostUpdates {
+
+  private PostUpdates() {
+  }
+
+  // fails before anything is written when the client has read an older version
+  static void checkVersion(Post post, PostUpdateDTO inputPost) {
+    if (inputPost.getVersion() != null && !inputPost.getVersion().equals(post.getVersion())) {
+      throw new PostVersionConflictException("Post was changed, read it again before updating");
+    }
+  }
+
+  // a copy with the version it gets once stored, the given post may be the cached instance
+  static Post apply(Post post, PostUpdateDTO inputPost) {
+    return new Post(post.getId(), post.getUserId(),
+        inputPost.getTitle() != null ? inputPost.getTitle() : post.getTitle(),
+        inputPost.getBody() != null ? inputPost.getBody() : post.getBody(),
+        post.getVersion() + 1);
+  }
+
+  static Post store(PostRepository postRepository, Post post, PostUpdateDTO inputPost) {
+    int updated = postRepository.updateTitleAndBody(
+        post.getId(), inputPost.getTitle(), inputPost.getBody(), post.getVersion());
+    if (updated == 0) {
+      throw new PostVersionConflictException("Post was changed, read it again before updating");
+    }
+    return apply(post, inputPost);
+  }
+
+  // Sets title and body of the stored update back once external API refused it, which bumps the
+  // version once more. A post written again in the meantime keeps that later write.
+  static void undo(PostRepository postRepository, Post post, Post updatedPost) {
+    postRepository.replaceTitleAndBody(
+        post.getId(), post.getTitle(), post.getBody(), updatedPost.getVersion());
+  }
+}
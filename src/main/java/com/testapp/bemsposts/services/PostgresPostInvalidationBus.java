@@ -0,0 +1,176 @@
+package com.testapp.bemsposts.services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// ==================================================
+// *** Post invalidation bus on PostgreSQL NOTIFY ***
+// ==================================================
+// Changed post ids are sent with pg_notify through the connection pool, every instance LISTENs on
+// a dedicated connection outside the pool. Payloads carry the id of the sending instance, which
+// ignores its own notifications. PostgreSQL doesn't keep notifications for a connection that was
+// down, so after every (re)connect the listeners evict everything.
+@Slf4j
+@Component
+@ConditionalOnProperty(
+    name = "posts.cache.invalidation", havingValue = "postgres", matchIfMissing = true)
+public class PostgresPostInvalidationBus implements PostInvalidationBus, DisposableBean {
+  static final String CHANNEL = "posts_invalidation";
+  // PostgreSQL limits a payload to 8000 bytes
+  static final int MAX_PAYLOAD_LENGTH = 7900;
+  private static final int POLL_TIMEOUT_MS = 500;
+  private static final long RECONNECT_DELAY_MS = 1000;
+
+  private final String instanceId = UUID.randomUUID().toString();
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final String url;
+  private final String username;
+  private final String password;
+  private final List<Consumer<Integer>> evictListeners = new CopyOnWriteArrayList<>();
+  private final List<Runnable> evictAllListeners = new CopyOnWriteArrayList<>();
+  private volatile boolean running;
+  private Thread listener;
+
+  @Autowired
+  public PostgresPostInvalidationBus(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${spring.datasource.url}") String url,
+      @Value("${spring.datasource.username}") String username,
+      @Value("${spring.datasource.password}") String password
+  ) {
+    this.jdbcTemplate = jdbcTemplate;
+    // NOTIFY is delivered on commit, pooled connections may not auto-commit (prod profile)
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.url = url;
+    this.username = username;
+    this.password = password;
+  }
+
+  // ---------------
+  // *** Publish ***
+  // ---------------
+  // A failed publish doesn't fail the write, other instances keep their copies until the cache
+  // entries expire (posts.cache.posts.expire-after-write).
+  @Override
+  public void publish(Collection<Integer> postIds) {
+    if (postIds.isEmpty()) {
+      return;
+    }
+    try {
+      transactionTemplate.executeWithoutResult(status -> payloads(postIds).forEach(payload ->
+          jdbcTemplate.queryForList("select pg_notify(?, ?)", CHANNEL, payload)));
+    } catch (DataAccessException exception) {
+      log.warn("Invalidation of {} posts not sent: {}", postIds.size(), exception.getMessage());
+    }
+  }
+
+  // "<instance id>:<post id>,<post id>,..."
+  List<String> payloads(Collection<Integer> postIds) {
+    List<String> payloads = new ArrayList<>();
+    StringBuilder payload = new StringBuilder(instanceId).append(':');
+    int emptyLength = payload.length();
+    for (Integer postId : postIds) {
+      String id = postId.toString();
+      if (payload.length() + id.length() + 1 > MAX_PAYLOAD_LENGTH) {
+        payloads.add(payload.substring(0, payload.length() - 1));
+        payload.setLength(emptyLength);
+      }
+      payload.append(id).append(',');
+    }
+    payloads.add(payload.substring(0, payload.length() - 1));
+    return payloads;
+  }
+
+  // --------------
+  // *** Listen ***
+  // --------------
+  @Override
+  public void subscribe(Consumer<Integer> evict, Runnable evictAll) {
+    evictListeners.add(evict);
+    evictAllListeners.add(evictAll);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    running = true;
+    listener = Thread.ofPlatform().daemon().name("posts-invalidation").start(this::listen);
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    if (listener != null) {
+      listener.join(POLL_TIMEOUT_MS * 2L);
+    }
+  }
+
+  private void listen() {
+    while (running) {
+      try (Connection connection = DriverManager.getConnection(url, username, password)) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("listen " + CHANNEL);
+        }
+        evictAllListeners.forEach(Runnable::run);
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              receive(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException exception) {
+        if (running) {
+          log.warn("Listening for post invalidations failed, reconnecting: {}",
+              exception.getMessage());
+          pause();
+        }
+      }
+    }
+  }
+
+  void receive(String payload) {
+    int separator = payload.indexOf(':');
+    if (separator < 0 || payload.substring(0, separator).equals(instanceId)) {
+      return;
+    }
+    for (String id : payload.substring(separator + 1).split(",")) {
+      Integer postId = Integer.valueOf(id);
+      evictListeners.forEach(evict -> evict.accept(postId));
+    }
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(RECONNECT_DELAY_MS);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+}
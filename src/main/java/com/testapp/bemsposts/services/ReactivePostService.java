@@ -0,0 +1,22 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import reactor.core.publisher.Mono;
+
+
+public interface ReactivePostService {
+
+  Mono<Post> addPost(PostDTO inputPost);
+
+  Mono<Post> findById(Integer id);
+
+  Mono<PostListDTO> findPostsByUserId(Integer userId, Integer cursor, int limit);
+
+  Mono<Void> deletePostById(Integer id);
+
+  Mono<Post> updatePostById(Integer id, PostUpdateDTO inputPost);
+
+}
@@ -0,0 +1,257 @@
+package com.testapp.bemsposts.services;
+
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.exceptions.ExternalAPIUnavailableException;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.exceptions.PostVersionConflictException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// ==================================
+// *** Non-blocking Post Services ***
+// ==================================
+// Same behaviour as PostServiceImpl, but nothing waits on a request thread: upstream calls stay
+// reactive and the blocking JPA calls are moved to the bounded elastic scheduler.
+@Service
+public class ReactivePostServiceImpl implements ReactivePostService {
+  private final PostRepository postRepository;
+  private final ExternalAPIService externalAPIService;
+  private final PostOutboxService postOutboxService;
+  private final PostSyncService postSyncService;
+  private final Cache postCache;
+  private final PostInvalidationBus postInvalidationBus;
+  private final PostMetrics postMetrics;
+  private final SingleFlight<Integer, Post> postByIdFlights = new SingleFlight<>();
+  private final SingleFlight<Integer, List<Post>> postsByUserIdFlights = new SingleFlight<>();
+  private final Duration userPostsDeadline;
+  private final int maxPageSize;
+  private final PostWriteMode writeMode;
+
+  @Autowired
+  public ReactivePostServiceImpl(
+      PostRepository postRepository,
+      ExternalAPIService externalAPIService,
+      PostOutboxService postOutboxService,
+      PostSyncService postSyncService,
+      CacheManager cacheManager,
+      PostInvalidationBus postInvalidationBus,
+      MeterRegistry meterRegistry,
+      @Value("${posts.external-api.write-mode}") PostWriteMode writeMode,
+      @Value("${posts.external-api.user-posts-deadline}") Duration userPostsDeadline,
+      @Value("${posts.pagination.max-limit}") int maxPageSize
+  ) {
+    this.postRepository = postRepository;
+    this.externalAPIService = externalAPIService;
+    this.postOutboxService = postOutboxService;
+    this.postSyncService = postSyncService;
+    this.postCache = cacheManager.getCache(CacheConfiguration.POSTS_CACHE);
+    this.postInvalidationBus = postInvalidationBus;
+    this.postMetrics = new PostMetrics(meterRegistry);
+    this.writeMode = writeMode;
+    this.userPostsDeadline = userPostsDeadline;
+    this.maxPageSize = maxPageSize;
+  }
+
+  // the local transaction of a write-behind write, cache is refreshed once it commits
+  private Mono<Post> writeLocally(Callable<Post> write) {
+    return Mono.fromCallable(() -> {
+      Post post = write.call();
+      postCache.put(post.getId(), post);
+      return post;
+    }).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // other instances evict their copies of a written post, publishing may block on the DB
+  private Mono<Post> publishWrite(Post post) {
+    return Mono.fromCallable(() -> {
+      postInvalidationBus.publish(List.of(post.getId()));
+      return post;
+    }).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // -----------------------------
+  // *** Services for new Post ***
+  // -----------------------------
+  @Override
+  public Mono<Post> addPost(PostDTO inputPost) {
+    return postMetrics.timeService("addPost", Mono.defer(() -> {
+      PostRequests.checkInput(inputPost);
+      if (writeMode.isWriteBehind()) {
+        return externalAPIService.validateUserId(inputPost.getUserId())
+            .then(writeLocally(() -> postOutboxService.createPost(inputPost)));
+      }
+      return externalAPIService.validateUserId(inputPost.getUserId())
+          .then(externalAPIService.savePost(inputPost))
+          .flatMap(this::savePost);
+    }).flatMap(this::publishWrite));
+  }
+
+  private Mono<Post> savePost(Post externalPost) {
+    return Mono.fromCallable(() -> {
+      Post post = postRepository.saveAllFromExternalAPI(List.of(externalPost)).get(0);
+      postCache.put(post.getId(), post);
+      return post;
+    }).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // ------------------------------------
+  // *** Services for find Post by Id ***
+  // ------------------------------------
+  @Override
+  public Mono<Post> findById(Integer id) {
+    return postMetrics.timeService("findById", Mono.defer(() -> {
+      Post cachedPost = postCache.get(id, Post.class);
+      if (cachedPost != null) {
+        postMetrics.countFindById("cache");
+        return Mono.just(cachedPost);
+      }
+      return Mono.fromFuture(postByIdFlights.executeAsync(id, () -> loadPost(id).toFuture()), true);
+    }));
+  }
+
+  private Mono<Post> loadPost(Integer id) {
+    return Mono.fromCallable(() -> postRepository.findById(id))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(myPost -> myPost
+            .map(post -> {
+              postMetrics.countFindById("db");
+              postCache.put(id, post);
+              return Mono.just(post);
+            })
+            .orElseGet(() -> loadExternalPost(id)));
+  }
+
+  private Mono<Post> loadExternalPost(Integer id) {
+    Mono<Post> externalPost = Mono.defer(() -> {
+      postMetrics.countFindById("external-api");
+      return externalAPIService.findPostById(id).flatMap(this::savePost);
+    });
+    if (!writeMode.isWriteBehind()) {
+      return externalPost;
+    }
+    return Mono.fromCallable(() -> postOutboxService.isHiddenUpstream(id))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(hidden -> hidden
+            ? Mono.error(new PostNotFoundException("Post Not Found"))
+            : externalPost);
+  }
+
+  // posts deleted or created locally in write-behind mode are left out of external API's list
+  private Mono<List<Post>> withoutHiddenUpstream(List<Post> externalPosts) {
+    if (!writeMode.isWriteBehind()) {
+      return Mono.just(externalPosts);
+    }
+    return Mono.fromCallable(() -> postOutboxService.withoutHiddenUpstream(externalPosts))
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // ------------------------------------------
+  // *** Services for find Posts by User Id ***
+  // ------------------------------------------
+  // the sync hook, the page and both queries run on subscription, not when the Mono is built
+  @Override
+  public Mono<PostListDTO> findPostsByUserId(Integer userId, Integer cursor, int limit) {
+    return postMetrics.timeService("findPostsByUserId", Mono.defer(() -> {
+      postSyncService.userRequested(userId);
+      int afterId = PostRequests.afterId(cursor);
+      int pageSize = PostRequests.pageSize(limit, maxPageSize);
+      Mono<List<Post>> internalPosts = Mono.fromCallable(() -> postRepository
+              .findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, Limit.of(pageSize + 1)))
+          .subscribeOn(Schedulers.boundedElastic());
+      return Mono.zip(internalPosts, findExternalPostsByUserId(userId))
+          .map(posts -> PostRequests.userPostsPage(
+              posts.getT1(), posts.getT2(), afterId, pageSize, postMetrics));
+    }));
+  }
+
+  // empty when external API missed the deadline or is unavailable, posts of a user the
+  // background sync keeps fresh are all stored, external API isn't asked for them
+  private Mono<Optional<List<Post>>> findExternalPostsByUserId(Integer userId) {
+    return Mono.defer(() -> postSyncService.isFresh(userId)
+            ? Mono.just(List.<Post>of())
+            : Mono.fromFuture(
+                postsByUserIdFlights.executeAsync(userId,
+                    () -> externalAPIService.findPostsByUserId(userId).collectList().toFuture()),
+                true)
+                .flatMap(this::withoutHiddenUpstream))
+        .map(Optional::of)
+        .timeout(userPostsDeadline, Mono.just(Optional.empty()))
+        .onErrorResume(ExternalAPIUnavailableException.class,
+            exception -> Mono.just(Optional.empty()));
+  }
+
+  // --------------------------------
+  // *** Services for Post Update ***
+  // --------------------------------
+  @Override
+  public Mono<Post> updatePostById(Integer id, PostUpdateDTO inputPost) {
+    return postMetrics.timeService("updatePostById", findById(id)
+        .flatMap(post -> {
+          PostUpdates.checkVersion(post, inputPost);
+          if (writeMode.isWriteBehind()) {
+            return writeLocally(() -> postOutboxService.updatePost(post, inputPost));
+          }
+          return Mono.fromCallable(() -> PostUpdates.store(postRepository, post, inputPost))
+              .subscribeOn(Schedulers.boundedElastic())
+              .flatMap(updatedPost -> replaceExternalPost(post, updatedPost));
+        })
+        .flatMap(this::publishWrite)
+        .doOnError(PostVersionConflictException.class, exception -> postCache.evict(id)));
+  }
+
+  // the stored update is undone when the PUT fails, see PostServiceImpl
+  private Mono<Post> replaceExternalPost(Post post, Post updatedPost) {
+    return externalAPIService.replacePost(updatedPost)
+        .then(Mono.fromCallable(() -> {
+          postCache.put(updatedPost.getId(), updatedPost);
+          return updatedPost;
+        }))
+        .onErrorResume(exception -> Mono.fromRunnable(() -> {
+          PostUpdates.undo(postRepository, post, updatedPost);
+          postCache.evict(post.getId());
+          postInvalidationBus.publish(List.of(post.getId()));
+        }).subscribeOn(Schedulers.boundedElastic()).then(Mono.<Post>error(exception)));
+  }
+
+  // --------------------------------
+  // *** Services for Post Delete ***
+  // --------------------------------
+  @Override
+  public Mono<Void> deletePostById(Integer id) {
+    return postMetrics.timeService("deletePostById", deletePost(id));
+  }
+
+  private Mono<Void> deletePost(Integer id) {
+    if (writeMode.isWriteBehind()) {
+      return Mono.fromRunnable(() -> {
+        postOutboxService.deletePost(id);
+        postCache.evict(id);
+        postInvalidationBus.publish(List.of(id));
+      }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+    return externalAPIService.deletePostById(id)
+        .then(Mono.fromRunnable(() -> {
+          postRepository.deleteAllByIdInBatch(List.of(id));
+          postCache.evict(id);
+          postInvalidationBus.publish(List.of(id));
+        }).subscribeOn(Schedulers.boundedElastic()))
+        .then();
+  }
+}
@@ -0,0 +1,71 @@
+package com.testapp.bemsposts.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+// =====================================================================
+// *** Coalesces concurrent loads of the same key into a single call ***
+// =====================================================================
+// The first caller for a key runs the loader, callers arriving while it is in flight wait for
+// the same result or exception. Nothing is remembered once the load completes.
+class SingleFlight<K, V> {
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  V execute(K key, Supplier<V> loader) {
+    CompletableFuture<V> call = new CompletableFuture<>();
+    CompletableFuture<V> existingCall = inFlight.putIfAbsent(key, call);
+    if (existingCall != null) {
+      return await(existingCall);
+    }
+    try {
+      V value = loader.get();
+      call.complete(value);
+      return value;
+    } catch (RuntimeException | Error exception) {
+      call.completeExceptionally(exception);
+      throw exception;
+    } finally {
+      inFlight.remove(key, call);
+    }
+  }
+
+  // Non-blocking variant, the returned future completes when the shared load does
+  CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+    CompletableFuture<V> call = new CompletableFuture<>();
+    CompletableFuture<V> existingCall = inFlight.putIfAbsent(key, call);
+    if (existingCall != null) {
+      return existingCall;
+    }
+    try {
+      loader.get().whenComplete((value, exception) -> {
+        inFlight.remove(key, call);
+        if (exception != null) {
+          call.completeExceptionally(exception);
+        } else {
+          call.complete(value);
+        }
+      });
+    } catch (RuntimeException | Error exception) {
+      inFlight.remove(key, call);
+      call.completeExceptionally(exception);
+    }
+    return call;
+  }
+
+  private V await(CompletableFuture<V> call) {
+    try {
+      return call.join();
+    } catch (CompletionException exception) {
+      if (exception.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (exception.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw exception;
+    }
+  }
+}
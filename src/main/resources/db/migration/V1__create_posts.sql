@@ -0,0 +1,18 @@
+-- Local copies of external API posts and posts created in write-behind mode.
+-- A schema created by the former ddl-auto=update is baselined at version 0 and brought to the
+-- same state by these statements, so they are written to be re-runnable.
+create table if not exists posts (
+  id integer not null primary key,
+  user_id integer,
+  title text,
+  body text,
+  version integer default 0 not null
+);
+
+-- titles and bodies of external API aren't limited to 255 characters
+alter table posts alter column title set data type text;
+alter table posts alter column body set data type text;
+alter table posts add column if not exists version integer default 0 not null;
+
+-- keyset pages and the export of GET /posts?userId= read a user's posts in id order
+create index if not exists posts_user_id_id_idx on posts (user_id, id);
@@ -0,0 +1,21 @@
+-- Pending external API mutations of write-behind mode, dispatched in id order.
+create table if not exists post_outbox (
+  id bigint generated by default as identity primary key,
+  post_id integer,
+  operation varchar(16) check (operation in ('CREATE', 'UPDATE', 'DELETE')),
+  user_id integer,
+  title text,
+  body text,
+  attempts integer not null,
+  next_attempt_at timestamp(6) with time zone,
+  last_error text
+);
+
+alter table post_outbox alter column title set data type text;
+alter table post_outbox alter column body set data type text;
+alter table post_outbox alter column last_error set data type text;
+
+create index if not exists post_outbox_post_id_idx on post_outbox (post_id);
+
+-- ids of posts created in write-behind mode, before external API has seen them
+create sequence if not exists posts_local_id_seq start with 1000001;
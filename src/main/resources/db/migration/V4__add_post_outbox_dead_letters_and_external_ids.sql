@@ -0,0 +1,12 @@
+-- Mutations given up on (rejected by external API or out of attempts) stay in post_outbox as dead
+-- letters for inspection, the dispatcher skips them.
+alter table post_outbox add column if not exists dead_lettered_at timestamp(6) with time zone;
+
+create index if not exists post_outbox_next_attempt_at_idx on post_outbox (next_attempt_at);
+
+-- Ids external API gave the posts created in write-behind mode, later mutations of such a post are
+-- sent with it. external_id is null until the CREATE is dispatched.
+create table if not exists post_external_ids (
+  post_id integer primary key,
+  external_id integer
+);
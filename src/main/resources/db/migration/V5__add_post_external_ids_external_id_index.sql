@@ -0,0 +1,3 @@
+-- Reads leave out the posts external API holds under an id it gave a post created locally, they
+-- look the fetched ids up by external_id.
+create index if not exists post_external_ids_external_id_idx on post_external_ids (external_id);
@@ -0,0 +1,9 @@
+-- Full-text search of GET /posts/search, PostgreSQL only (db/migration/{vendor}).
+-- Title words rank above body words. The generated column is kept up to date by PostgreSQL on
+-- every insert and update, so the write paths of the MS don't change.
+alter table posts add column if not exists search_vector tsvector generated always as (
+  setweight(to_tsvector('english', coalesce(title, '')), 'A')
+    || setweight(to_tsvector('english', coalesce(body, '')), 'B')
+) stored;
+
+create index if not exists posts_search_vector_idx on posts using gin (search_vector);
@@ -0,0 +1,162 @@
+package com.testapp.bemsposts;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// =================================================================
+// *** Local stand-in for the jsonplaceholder-style upstream API ***
+// =================================================================
+// Serves 10 users with 10 posts each (post ids 1..100), counts every request by path and query,
+// keeps the headers of the last one, and can delay responses to keep concurrent callers in
+// flight, or fail a share of them (503 unless another error status is set).
+public class StubUpstreamServer implements AutoCloseable {
+  public static final int USERS = 10;
+  public static final int POSTS_PER_USER = 10;
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+  private final Map<String, Headers> lastRequestHeaders = new ConcurrentHashMap<>();
+  private volatile Duration latency = Duration.ZERO;
+  private volatile double errorRate;
+  private volatile int errorStatus = 503;
+
+  private StubUpstreamServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+  }
+
+  public static StubUpstreamServer start() throws IOException {
+    StubUpstreamServer stub = new StubUpstreamServer();
+    stub.server.start();
+    return stub;
+  }
+
+  public String baseUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  public void setLatency(Duration latency) {
+    this.latency = latency;
+  }
+
+  // share of requests, 0.0 to 1.0, answered with the error status after the latency
+  public void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  public void setErrorStatus(int errorStatus) {
+    this.errorStatus = errorStatus;
+  }
+
+  public int hits(String pathAndQuery) {
+    AtomicInteger counter = hits.get(pathAndQuery);
+    return counter == null ? 0 : counter.get();
+  }
+
+  // header of the last request to the path and query, null when there was none or it lacked it
+  public String requestHeader(String pathAndQuery, String name) {
+    Headers headers = lastRequestHeaders.get(pathAndQuery);
+    return headers == null ? null : headers.getFirst(name);
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String query = exchange.getRequestURI().getQuery();
+    String pathAndQuery = query == null ? path : path + "?" + query;
+    hits.computeIfAbsent(pathAndQuery, key -> new AtomicInteger()).incrementAndGet();
+    lastRequestHeaders.put(pathAndQuery, exchange.getRequestHeaders());
+    sleep();
+
+    String[] segments = path.substring(1).split("/");
+    String method = exchange.getRequestMethod();
+    String requestBody =
+        new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+    if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+      respond(exchange, errorStatus, "{}");
+    } else if (segments[0].equals("users") && segments.length == 1) {
+      StringJoiner users = new StringJoiner(",", "[", "]");
+      for (int userId = 1; userId <= USERS; userId++) {
+        users.add("{\"id\":" + userId + "}");
+      }
+      respond(exchange, 200, users.toString());
+    } else if (segments[0].equals("users") && segments.length == 2) {
+      int userId = Integer.parseInt(segments[1]);
+      if (userId <= USERS) {
+        respond(exchange, 200, "{\"id\":" + userId + "}");
+      } else {
+        respond(exchange, 404, "{}");
+      }
+    } else if (segments[0].equals("posts") && segments.length == 1 && method.equals("GET")) {
+      int userId = Integer.parseInt(query.substring(query.indexOf('=') + 1));
+      StringJoiner posts = new StringJoiner(",", "[", "]");
+      if (userId <= USERS) {
+        for (int id = (userId - 1) * POSTS_PER_USER + 1; id <= userId * POSTS_PER_USER; id++) {
+          posts.add(post(id));
+        }
+      }
+      respond(exchange, 200, posts.toString());
+    } else if (segments[0].equals("posts") && segments.length == 1 && method.equals("POST")) {
+      int id = USERS * POSTS_PER_USER + 1;
+      respond(exchange, 201, requestBody.replaceFirst("\\{", "{\"id\":" + id + ","));
+    } else if (segments[0].equals("posts") && segments.length == 2) {
+      int id = Integer.parseInt(segments[1]);
+      if (id > USERS * POSTS_PER_USER) {
+        respond(exchange, 404, "{}");
+      } else if (method.equals("PUT")) {
+        respond(exchange, 200, requestBody);
+      } else if (method.equals("DELETE")) {
+        respond(exchange, 200, "{}");
+      } else {
+        respond(exchange, 200, post(id));
+      }
+    } else {
+      respond(exchange, 404, "{}");
+    }
+  }
+
+  private static String post(int id) {
+    int userId = (id - 1) / POSTS_PER_USER + 1;
+    return "{\"id\":" + id + ",\"userId\":" + userId + ",\"title\":\"title " + id
+        + "\",\"body\":\"body " + id + "\"}";
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      responseBody.write(bytes);
+    }
+  }
+
+  private void sleep() {
+    try {
+      Thread.sleep(latency.toMillis());
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
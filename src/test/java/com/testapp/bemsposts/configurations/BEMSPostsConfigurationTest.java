@@ -0,0 +1,79 @@
+package com.testapp.bemsposts.configurations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.io.IOException;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+// The external API client as configured, against the stub, with a 300 ms response timeout
+class BEMSPostsConfigurationTest {
+  private StubUpstreamServer upstream;
+  private ApplicationContextRunner contextRunner;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    contextRunner = new ApplicationContextRunner()
+        .withUserConfiguration(BEMSPostsConfiguration.class)
+        .withBean(WebClient.Builder.class, WebClient::builder)
+        .withPropertyValues(
+            "APIURL=" + upstream.baseUrl(),
+            "posts.external-api.pool.max-connections=10",
+            "posts.external-api.pool.pending-acquire-max-count=100",
+            "posts.external-api.pool.pending-acquire-timeout=5s",
+            "posts.external-api.pool.max-idle-time=30s",
+            "posts.external-api.pool.max-life-time=5m",
+            "posts.external-api.connect-timeout=2s",
+            "posts.external-api.response-timeout=300ms",
+            "posts.external-api.compression=true",
+            "posts.external-api.http2=false");
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void responseWithinTheTimeoutIsRead() {
+    upstream.setLatency(Duration.ofMillis(50));
+
+    contextRunner.run(context -> {
+      String post = get(context.getBean(WebClient.class));
+
+      assertTrue(post.contains("\"id\":1"));
+    });
+  }
+
+  @Test
+  void upstreamSlowerThanTheResponseTimeoutTimesOut() {
+    upstream.setLatency(Duration.ofSeconds(3));
+
+    contextRunner.run(context -> {
+      WebClient webClient = context.getBean(WebClient.class);
+      long start = System.nanoTime();
+
+      WebClientRequestException exception =
+          assertThrows(WebClientRequestException.class, () -> get(webClient));
+
+      assertInstanceOf(ReadTimeoutException.class, exception.getCause());
+      assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+      assertEquals(1, upstream.hits("/posts/1"));
+    });
+  }
+
+  private static String get(WebClient webClient) {
+    return webClient.get().uri("/posts/1").retrieve().bodyToMono(String.class).block();
+  }
+}
@@ -0,0 +1,49 @@
+package com.testapp.bemsposts.configurations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSpanExporterTest {
+
+  @Test
+  void writesOneLinePerSpanWithTheTraceOfItsRequest(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("spans.log");
+    InMemorySpanExporter memory = InMemorySpanExporter.create();
+    SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+        .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(file)))
+        .addSpanProcessor(SimpleSpanProcessor.create(memory))
+        .build();
+    Tracer tracer = tracerProvider.get("test");
+
+    Span request = tracer.spanBuilder("http get /posts/{id}").setSpanKind(SpanKind.SERVER)
+        .startSpan();
+    try (Scope scope = request.makeCurrent()) {
+      tracer.spanBuilder("http get").setSpanKind(SpanKind.CLIENT).startSpan().end();
+    } finally {
+      request.end();
+    }
+    tracerProvider.shutdown();
+
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(2, lines.size());
+    String traceId = request.getSpanContext().getTraceId();
+    assertTrue(lines.stream().allMatch(line -> line.startsWith("traceId=" + traceId)));
+    assertTrue(lines.get(0).contains("parentId=" + request.getSpanContext().getSpanId()));
+    assertTrue(lines.get(0).contains("kind=CLIENT"));
+    assertEquals(2, memory.getFinishedSpanItems().size());
+  }
+}
@@ -0,0 +1,93 @@
+package com.testapp.bemsposts.configurations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.observation.web.client.HttpClientObservationsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.MicrometerTracingAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+
+// The external API client as configured, with Boot's tracing, sends the trace context of the
+// request it is called from to the stub in the traceparent header
+class UpstreamTracePropagationTest {
+  private StubUpstreamServer upstream;
+  private ApplicationContextRunner contextRunner;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(ObservationAutoConfiguration.class,
+            org.springframework.boot.actuate.autoconfigure.opentelemetry
+                .OpenTelemetryAutoConfiguration.class,
+            OpenTelemetryAutoConfiguration.class, MicrometerTracingAutoConfiguration.class,
+            HttpClientObservationsAutoConfiguration.class, WebClientAutoConfiguration.class))
+        .withUserConfiguration(BEMSPostsConfiguration.class)
+        .withPropertyValues(
+            "APIURL=" + upstream.baseUrl(),
+            "posts.external-api.pool.max-connections=10",
+            "posts.external-api.pool.pending-acquire-max-count=100",
+            "posts.external-api.pool.pending-acquire-timeout=5s",
+            "posts.external-api.pool.max-idle-time=30s",
+            "posts.external-api.pool.max-life-time=5m",
+            "posts.external-api.connect-timeout=2s",
+            "posts.external-api.response-timeout=2s",
+            "posts.external-api.compression=true",
+            "posts.external-api.http2=false");
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void sampledTraceIsSentToExternalAPI() {
+    contextRunner.withPropertyValues("management.tracing.sampling.probability=1.0")
+        .run(context -> {
+          String traceId = getWithinASpan(context.getBean(Tracer.class),
+              context.getBean(WebClient.class));
+
+          String traceparent = upstream.requestHeader("/posts/1", "traceparent");
+          assertEquals("00-" + traceId, traceparent.substring(0, 35));
+          assertEquals("-01", traceparent.substring(52));
+        });
+  }
+
+  // with management.tracing.sampling.probability below 1 most traces aren't recorded, external
+  // API still gets their trace id so its logs can be matched with ours
+  @Test
+  void traceThatIsNotSampledIsSentToo() {
+    contextRunner.withPropertyValues("management.tracing.sampling.probability=0.0")
+        .run(context -> {
+          String traceId = getWithinASpan(context.getBean(Tracer.class),
+              context.getBean(WebClient.class));
+
+          String traceparent = upstream.requestHeader("/posts/1", "traceparent");
+          assertEquals("00-" + traceId, traceparent.substring(0, 35));
+          assertEquals("-00", traceparent.substring(52));
+        });
+  }
+
+  // stands in for the span of the incoming request, returns its trace id
+  private static String getWithinASpan(Tracer tracer, WebClient webClient) {
+    Span request = tracer.nextSpan().name("http get /posts/{id}").start();
+    try (Tracer.SpanInScope scope = tracer.withSpan(request)) {
+      webClient.get().uri("/posts/1").retrieve().bodyToMono(String.class).block();
+    } finally {
+      request.end();
+    }
+    return request.context().traceId();
+  }
+}
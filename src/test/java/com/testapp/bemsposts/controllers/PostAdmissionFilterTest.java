@@ -0,0 +1,109 @@
+package com.testapp.bemsposts.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testapp.bemsposts.services.AdaptiveConcurrencyLimit;
+import com.testapp.bemsposts.services.ClientRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+// One request per second and client, one request in flight, 10.0.0.100 is the trusted proxy
+class PostAdmissionFilterTest {
+  private static final String PROXY = "10.0.0.100";
+
+  private AdaptiveConcurrencyLimit concurrencyLimit;
+  private MeterRegistry meterRegistry;
+  private PostAdmissionFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    concurrencyLimit = new AdaptiveConcurrencyLimit(1, 1, 10, 10);
+    meterRegistry = new SimpleMeterRegistry();
+    filter = new PostAdmissionFilter(new ClientRateLimiter(1, 1, 100), concurrencyLimit,
+        "X-Client-Id", Set.of(PROXY), meterRegistry, new ObjectMapper());
+  }
+
+  @Test
+  void clientOverItsRateGets429WithRetryAfter() throws Exception {
+    assertEquals(200, send(request("10.0.0.1", null)).getStatus());
+
+    MockHttpServletResponse response = send(request("10.0.0.1", null));
+
+    assertEquals(429, response.getStatus());
+    assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+    assertEquals(1, rejected("rate-limit"));
+  }
+
+  @Test
+  void requestAtTheConcurrencyLimitGets503() throws Exception {
+    concurrencyLimit.tryAcquire();
+    MockFilterChain filterChain = new MockFilterChain();
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request("10.0.0.1", null), response, filterChain);
+
+    assertEquals(503, response.getStatus());
+    assertNull(filterChain.getRequest());
+    assertEquals(1, rejected("concurrency"));
+  }
+
+  @Test
+  void asyncRequestHoldsItsSlotUntilItCompletes() throws Exception {
+    MockHttpServletRequest request = request("10.0.0.1", null);
+    request.setAsyncSupported(true);
+    FilterChain startAsync = (servletRequest, servletResponse) -> servletRequest.startAsync();
+
+    filter.doFilter(request, new MockHttpServletResponse(), startAsync);
+
+    assertEquals(1, concurrencyLimit.getInFlight());
+    request.getAsyncContext().complete();
+    assertEquals(0, concurrencyLimit.getInFlight());
+  }
+
+  @Test
+  void clientHeaderOfAnUntrustedCallerIsIgnored() throws Exception {
+    assertEquals(200, send(request("10.0.0.1", "client-1")).getStatus());
+
+    assertEquals(429, send(request("10.0.0.1", "client-2")).getStatus());
+  }
+
+  @Test
+  void clientsBehindTheTrustedProxyAreToldApartByTheHeader() throws Exception {
+    assertEquals(200, send(request(PROXY, "client-1")).getStatus());
+
+    assertEquals(200, send(request(PROXY, "client-2")).getStatus());
+    assertEquals(429, send(request(PROXY, "client-2")).getStatus());
+  }
+
+  private MockHttpServletResponse send(MockHttpServletRequest request)
+      throws ServletException, IOException {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+
+  private static MockHttpServletRequest request(String remoteAddress, String clientId) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/posts/5");
+    request.setRemoteAddr(remoteAddress);
+    if (clientId != null) {
+      request.addHeader("X-Client-Id", clientId);
+    }
+    return request;
+  }
+
+  private double rejected(String reason) {
+    return meterRegistry.counter(PostAdmissionFilter.REJECTED_COUNTER, "reason", reason).count();
+  }
+}
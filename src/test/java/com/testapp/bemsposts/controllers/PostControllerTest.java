@@ -0,0 +1,118 @@
+package com.testapp.bemsposts.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.services.PostService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+class PostControllerTest {
+  private PostService postService;
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void setUp() {
+    postService = mock(PostService.class);
+    mockMvc = MockMvcBuilders
+        .standaloneSetup(new PostController(postService, Duration.ofSeconds(10)))
+        .build();
+  }
+
+  @Test
+  void findPostByIdAnswers304WhenETagMatches() throws Exception {
+    when(postService.findById(5)).thenReturn(new Post(5, 1, "title", "body"));
+
+    String eTag = mockMvc.perform(get("/posts/5").accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=10, must-revalidate"))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(get("/posts/5").accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+  }
+
+  @Test
+  void findPostByIdChangesETagWithContent() throws Exception {
+    when(postService.findById(5)).thenReturn(new Post(5, 1, "title", "body"));
+    String eTag = mockMvc.perform(get("/posts/5").accept(MediaType.APPLICATION_JSON))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    when(postService.findById(5)).thenReturn(new Post(5, 1, "title", "new body"));
+
+    String newETag = mockMvc.perform(get("/posts/5").accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    assertNotEquals(eTag, newETag);
+  }
+
+  @Test
+  void postListIsRevalidatedFromIdsAndVersionsWithoutLoadingThePage() throws Exception {
+    when(postService.findPostsByUserId(eq(1), any(), anyInt())).thenReturn(new PostListDTO(
+        List.of(new Post(5, 1, "title", "body", 2), new Post(6, 1, "title", "body", 0)),
+        false, null));
+    when(postService.findPostVersionsByUserId(eq(1), any(), anyInt())).thenReturn(Optional.of(
+        new PostListDTO(List.of(new Post(5, 1, null, null, 2), new Post(6, 1, null, null, 0)),
+            false, null)));
+
+    String eTag = mockMvc.perform(get("/posts").param("userId", "1")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    mockMvc.perform(get("/posts").param("userId", "1").accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    verify(postService, times(1)).findPostsByUserId(eq(1), any(), anyInt());
+  }
+
+  @Test
+  void postListChangedSinceItsETagIsLoaded() throws Exception {
+    when(postService.findPostsByUserId(eq(1), any(), anyInt())).thenReturn(new PostListDTO(
+        List.of(new Post(5, 1, "title", "body", 2)), false, null));
+    String eTag = mockMvc.perform(get("/posts").param("userId", "1")
+            .accept(MediaType.APPLICATION_JSON))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    when(postService.findPostVersionsByUserId(eq(1), any(), anyInt())).thenReturn(Optional.of(
+        new PostListDTO(List.of(new Post(5, 1, null, null, 3)), false, null)));
+
+    mockMvc.perform(get("/posts").param("userId", "1").accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void partialPostListIsNotCachedNorValidated() throws Exception {
+    when(postService.findPostsByUserId(eq(1), any(), anyInt()))
+        .thenReturn(new PostListDTO(List.of(new Post(5, 1, "title", "body")), true, null));
+
+    mockMvc.perform(get("/posts").param("userId", "1").param("limit", "10")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
+  }
+}
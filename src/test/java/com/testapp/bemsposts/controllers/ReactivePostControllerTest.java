@@ -0,0 +1,91 @@
+package com.testapp.bemsposts.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import com.testapp.bemsposts.services.ExternalAPIService;
+import com.testapp.bemsposts.services.LocalPostInvalidationBus;
+import com.testapp.bemsposts.services.PostOutboxService;
+import com.testapp.bemsposts.services.PostSyncService;
+import com.testapp.bemsposts.services.ReactivePostServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.client.MockMvcWebTestClient;
+import reactor.core.publisher.Flux;
+
+// The reactive controller with the real ReactivePostServiceImpl, DB and external API mocked
+class ReactivePostControllerTest {
+  private PostRepository postRepository;
+  private ExternalAPIService externalAPIService;
+  private WebTestClient webTestClient;
+
+  @BeforeEach
+  void setUp() {
+    postRepository = mock(PostRepository.class);
+    when(postRepository.findById(5)).thenReturn(Optional.of(new Post(5, 1, "title", "body", 2)));
+    externalAPIService = mock(ExternalAPIService.class);
+    ReactivePostServiceImpl postService = new ReactivePostServiceImpl(postRepository,
+        externalAPIService, mock(PostOutboxService.class), mock(PostSyncService.class),
+        new ConcurrentMapCacheManager(), new LocalPostInvalidationBus(),
+        new SimpleMeterRegistry(), PostWriteMode.SYNC, Duration.ofMillis(200), 1000);
+    webTestClient = MockMvcWebTestClient
+        .bindToController(new ReactivePostController(postService, Duration.ofSeconds(10)))
+        .controllerAdvice(new PostExceptionHandler(new SimpleMeterRegistry()))
+        .placeholderValue("posts.pagination.default-limit", 20)
+        .build();
+  }
+
+  @Test
+  void findPostByIdAnswersTheStoredPostWithETag() {
+    webTestClient.get().uri("/posts/5").accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists(HttpHeaders.ETAG)
+        .expectBody()
+        .jsonPath("$.title").isEqualTo("title")
+        .jsonPath("$.version").isEqualTo(2);
+  }
+
+  @Test
+  void updateOfAPostChangedMeanwhileIsAConflictAndNotSentToExternalAPI() {
+    when(postRepository.updateTitleAndBody(5, "new title", null, 2)).thenReturn(0);
+
+    webTestClient.put().uri("/posts/5").contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(new PostUpdateDTO("new title", null, 2))
+        .exchange()
+        .expectStatus().isEqualTo(409);
+
+    verify(externalAPIService, never()).replacePost(any());
+  }
+
+  @Test
+  void postsOfAUserAreAPartialResultWhenExternalAPIMissesTheDeadline() {
+    when(postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(any(), any(), any()))
+        .thenReturn(List.of(new Post(5, 1, "title", "body", 2)));
+    when(externalAPIService.findPostsByUserId(1)).thenReturn(Flux.never());
+
+    webTestClient.get().uri("/posts?userId=1").accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(PostController.PARTIAL_RESULT_HEADER, "true")
+        .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-store")
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(1)
+        .jsonPath("$[0].id").isEqualTo(5);
+  }
+}
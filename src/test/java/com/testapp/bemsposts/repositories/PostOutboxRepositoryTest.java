@@ -0,0 +1,38 @@
+package com.testapp.bemsposts.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.testapp.bemsposts.models.PostOutboxEntry;
+import com.testapp.bemsposts.models.PostOutboxOperation;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class PostOutboxRepositoryTest {
+  @Autowired
+  private PostOutboxRepository postOutboxRepository;
+
+  @Test
+  void onlyDueMutationsNotHeldBackByAnOlderOneOfTheirPostAreLoaded() {
+    Instant now = Instant.now();
+    save(5, now.plusSeconds(60), null);
+    save(5, now, null);
+    PostOutboxEntry otherPost = save(6, now, null);
+    save(7, now, now);
+    PostOutboxEntry afterDeadLetter = save(7, now, null);
+
+    List<PostOutboxEntry> due = postOutboxRepository.findDue(now, PageRequest.ofSize(100));
+
+    assertEquals(List.of(otherPost.getId(), afterDeadLetter.getId()),
+        due.stream().map(PostOutboxEntry::getId).toList());
+  }
+
+  private PostOutboxEntry save(Integer postId, Instant nextAttemptAt, Instant deadLetteredAt) {
+    return postOutboxRepository.save(new PostOutboxEntry(null, postId,
+        PostOutboxOperation.UPDATE, 1, "title", "body", 0, nextAttemptAt, null, deadLetteredAt));
+  }
+}
@@ -0,0 +1,89 @@
+package com.testapp.bemsposts.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.testapp.bemsposts.models.Post;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// The search query, the V3 migration and its GIN index on a real PostgreSQL, skipped without
+// Docker. H2 has no tsvector, see PostSearchServiceImpl.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class PostRepositorySearchTest {
+  @Container
+  @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired
+  private PostRepository postRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void titleMatchRanksAboveBodyMatch() {
+    store(new Post(1, 1, "cooking at home", "kubernetes in the kitchen"),
+        new Post(2, 1, "kubernetes scheduling", "pods and nodes"),
+        new Post(3, 1, "gardening", "roses"));
+
+    List<Post> posts = postRepository.search("kubernetes", 0, 10, 1000);
+
+    assertEquals(List.of(2, 1), ids(posts));
+  }
+
+  @Test
+  void phrasesAndExcludedWordsAreParsedLikeWebSearch() {
+    store(new Post(1, 1, "kitchen sink", "a new kitchen sink"),
+        new Post(2, 1, "sink the kitchen", "kitchen and sink apart"),
+        new Post(3, 1, "kitchen sink", "kubernetes too"));
+
+    List<Post> posts = postRepository.search("\"kitchen sink\" -kubernetes", 0, 10, 1000);
+
+    assertEquals(List.of(1), ids(posts));
+  }
+
+  @Test
+  void onlyTheCandidatesAreRankedAndPaged() {
+    List<Post> matching = new ArrayList<>();
+    for (int id = 1; id <= 5; id++) {
+      matching.add(new Post(id, 1, "title " + id, "body"));
+    }
+    store(matching.toArray(Post[]::new));
+
+    assertEquals(3, postRepository.search("title", 0, 10, 3).size());
+    assertEquals(1, postRepository.search("title", 2, 10, 3).size());
+    assertEquals(5, postRepository.search("title", 0, 10, 1000).size());
+  }
+
+  @Test
+  void matchesAreFoundThroughTheGinIndex() {
+    store(new Post(1, 1, "kubernetes", "body"));
+    // a table this small is cheaper to scan, so the planner is told not to
+    jdbcTemplate.execute("set local enable_seqscan = off");
+
+    String plan = String.join("\n", jdbcTemplate.queryForList("explain select id from posts"
+        + " where search_vector @@ websearch_to_tsquery('english', 'kubernetes')", String.class));
+
+    assertTrue(plan.contains("posts_search_vector_idx"), plan);
+  }
+
+  private void store(Post... posts) {
+    postRepository.saveAllFromExternalAPI(List.of(posts));
+    postRepository.flush();
+  }
+
+  private static List<Integer> ids(List<Post> posts) {
+    return posts.stream().map(Post::getId).toList();
+  }
+}
@@ -0,0 +1,98 @@
+package com.testapp.bemsposts.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.testapp.bemsposts.models.Post;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Counts the JDBC statements Hibernate prepares for each write, on H2. Every repository call
+// runs in its own transaction, as it does when called from the services.
+@DataJpaTest(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostRepositoryStatementsTest {
+  @Autowired
+  private PostRepository postRepository;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    postRepository.deleteAllInBatch();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  void externalPostIsStoredWithOneInsert() {
+    List<Post> posts = postRepository.saveAllFromExternalAPI(List.of(post(1, "title")));
+
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, posts.get(0).getVersion());
+  }
+
+  @Test
+  void externalPostsAreStoredWithOneBatchedInsert() {
+    List<Post> posts = new ArrayList<>();
+    for (int id = 1; id <= 50; id++) {
+      posts.add(post(id, "title " + id));
+    }
+
+    postRepository.saveAllFromExternalAPI(posts);
+
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(50, statistics.getEntityInsertCount());
+  }
+
+  @Test
+  void externalPostWithStoredIdKeepsTheStoredCopy() {
+    postRepository.saveAllFromExternalAPI(List.of(post(1, "title")));
+    postRepository.updateTitleAndBody(1, "local title", null, 0);
+
+    List<Post> posts = postRepository.saveAllFromExternalAPI(
+        List.of(post(2, "title 2"), post(1, "external title"), post(3, "title 3")));
+
+    assertEquals(List.of(2, 1, 3), posts.stream().map(Post::getId).toList());
+    assertEquals("local title", posts.get(1).getTitle());
+    assertEquals(1, posts.get(1).getVersion());
+    assertEquals("local title", postRepository.findById(1).orElseThrow().getTitle());
+    assertEquals(3, postRepository.count());
+  }
+
+  @Test
+  void titleIsUpdatedWithOneUpdate() {
+    postRepository.saveAllFromExternalAPI(List.of(post(1, "title")));
+    statistics.clear();
+
+    int updated = postRepository.updateTitleAndBody(1, "new title", null, 0);
+
+    assertEquals(1, updated);
+    assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  void postIsDeletedWithOneDelete() {
+    postRepository.saveAllFromExternalAPI(List.of(post(1, "title")));
+    statistics.clear();
+
+    postRepository.deleteAllByIdInBatch(List.of(1));
+
+    assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  private static Post post(Integer id, String title) {
+    return new Post(id, 1, title, "body");
+  }
+}
@@ -0,0 +1,42 @@
+package com.testapp.bemsposts.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+// The slow statement log of the prod profile (hibernate.log_slow_query), with a lower threshold
+// so that a cross join of two H2 ranges crosses it and a constant select does not.
+@DataJpaTest(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.log_slow_query=50"})
+@ExtendWith(OutputCaptureExtension.class)
+class SlowQueryLogTest {
+  private static final String SLOW_QUERY_LOGGER = "org.hibernate.SQL_SLOW";
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  void statementSlowerThanTheThresholdIsLogged(CapturedOutput output) {
+    entityManager.createNativeQuery(
+            "select count(*) from system_range(1, 2000) a, system_range(1, 2000) b"
+                + " where mod(a.x * b.x, 7) = 3")
+        .getSingleResult();
+
+    assertTrue(output.getOut().contains(SLOW_QUERY_LOGGER));
+  }
+
+  @Test
+  void statementFasterThanTheThresholdIsNotLogged(CapturedOutput output) {
+    entityManager.createNativeQuery("select 1").getSingleResult();
+
+    assertFalse(output.getOut().contains(SLOW_QUERY_LOGGER));
+  }
+}
@@ -0,0 +1,65 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(40);
+
+  @Test
+  void requestsOverTheLimitAreRejected() {
+    AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(2, 1, 10, 10);
+
+    assertTrue(concurrencyLimit.tryAcquire());
+    assertTrue(concurrencyLimit.tryAcquire());
+    assertFalse(concurrencyLimit.tryAcquire());
+
+    concurrencyLimit.release(FAST);
+    assertTrue(concurrencyLimit.tryAcquire());
+  }
+
+  @Test
+  void limitGrowsWhileLatencyHoldsAndShrinksWhenRequestsQueue() {
+    AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(20, 10, 100, 20);
+    runWindows(concurrencyLimit, 5, FAST);
+    int grownLimit = concurrencyLimit.getLimit();
+    assertTrue(grownLimit > 20);
+
+    runWindows(concurrencyLimit, 5, SLOW);
+
+    assertTrue(concurrencyLimit.getLimit() < grownLimit);
+  }
+
+  @Test
+  void lightLoadDoesNotChangeTheLimit() {
+    AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(20, 10, 100, 20);
+
+    for (int request = 0; request < 100; request++) {
+      concurrencyLimit.tryAcquire();
+      concurrencyLimit.release(FAST);
+    }
+
+    assertEquals(20, concurrencyLimit.getLimit());
+  }
+
+  // every window runs with the whole limit in flight
+  private static void runWindows(AdaptiveConcurrencyLimit concurrencyLimit, int windows,
+                                 long rttNanos) {
+    int released = 0;
+    while (released < windows * 20) {
+      int acquired = 0;
+      while (concurrencyLimit.tryAcquire()) {
+        acquired++;
+      }
+      for (int request = 0; request < acquired; request++) {
+        concurrencyLimit.release(rttNanos);
+      }
+      released += acquired;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClientRateLimiterTest {
+  private AtomicLong now;
+  private ClientRateLimiter clientRateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    now = new AtomicLong();
+    clientRateLimiter = new ClientRateLimiter(10, 3, 100, now::get);
+  }
+
+  @Test
+  void clientOverItsBurstWaitsForTheNextToken() {
+    for (int request = 0; request < 3; request++) {
+      assertEquals(0, clientRateLimiter.tryAcquire("client"));
+    }
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), clientRateLimiter.tryAcquire("client"));
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    assertEquals(0, clientRateLimiter.tryAcquire("client"));
+  }
+
+  @Test
+  void clientsHaveTheirOwnBuckets() {
+    for (int request = 0; request < 3; request++) {
+      clientRateLimiter.tryAcquire("greedy client");
+    }
+
+    assertEquals(0, clientRateLimiter.tryAcquire("other client"));
+  }
+}
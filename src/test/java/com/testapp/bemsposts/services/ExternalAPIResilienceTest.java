@@ -0,0 +1,83 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
+import com.testapp.bemsposts.exceptions.ExternalAPIUnavailableException;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+class ExternalAPIResilienceTest {
+
+  // Same retry and breaker rules as application.properties, with short waits
+  static ExternalAPIResilience defaultResilience() {
+    return new ExternalAPIResilience(
+        CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .ignoreExceptions(PostNotFoundException.class)
+            .build()),
+        BulkheadRegistry.ofDefaults(),
+        RetryRegistry.of(RetryConfig.custom()
+            .maxAttempts(3)
+            .waitDuration(Duration.ofMillis(10))
+            .retryExceptions(ExternalAPIErrorException.class)
+            .ignoreExceptions(ExternalAPIUnavailableException.class)
+            .build()));
+  }
+
+  private final ExternalAPIResilience resilience = defaultResilience();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  void readRetriesExternalAPIErrors() {
+    Mono<Object> call = failingCall(new ExternalAPIErrorException("External API Error"));
+
+    assertThrows(ExternalAPIErrorException.class, () -> resilience.read(call).block());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void readDoesNotRetryPostNotFound() {
+    Mono<Object> call = failingCall(new PostNotFoundException("Post Not Found"));
+
+    assertThrows(PostNotFoundException.class, () -> resilience.read(call).block());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void writeIsNotRetried() {
+    Mono<Object> call = failingCall(new ExternalAPIErrorException("External API Error"));
+
+    assertThrows(ExternalAPIErrorException.class, () -> resilience.write(call).block());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void openCircuitFailsFastWithoutCallingExternalAPI() {
+    Mono<Object> call = failingCall(new ExternalAPIErrorException("External API Error"));
+    for (int i = 0; i < 4; i++) {
+      assertThrows(ExternalAPIErrorException.class, () -> resilience.write(call).block());
+    }
+
+    assertThrows(ExternalAPIUnavailableException.class, () -> resilience.read(call).block());
+    assertEquals(4, calls.get());
+  }
+
+  private Mono<Object> failingCall(RuntimeException exception) {
+    return Mono.defer(() -> {
+      calls.incrementAndGet();
+      return Mono.error(exception);
+    });
+  }
+}
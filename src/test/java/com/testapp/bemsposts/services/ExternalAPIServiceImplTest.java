@@ -0,0 +1,95 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
+import com.testapp.bemsposts.exceptions.UserNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+class ExternalAPIServiceImplTest {
+
+  // External API client of the services tests: talks to the stub, with the resilience of
+  // application.properties and without user caches
+  static ExternalAPIServiceImpl externalAPIService(StubUpstreamServer upstream) {
+    return externalAPIService(upstream, new NoOpCacheManager(), false);
+  }
+
+  static ExternalAPIServiceImpl externalAPIService(
+      StubUpstreamServer upstream, CacheManager cacheManager, boolean warmUpKnownUsers) {
+    WebClient webClient = WebClient.builder()
+        .baseUrl(upstream.baseUrl())
+        .clientConnector(new JdkClientHttpConnector())
+        .build();
+    return new ExternalAPIServiceImpl(webClient, cacheManager, new SimpleMeterRegistry(),
+        ExternalAPIResilienceTest.defaultResilience(), warmUpKnownUsers);
+  }
+
+  private StubUpstreamServer upstream;
+  private ExternalAPIServiceImpl externalAPIService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    externalAPIService = externalAPIService(upstream, new ConcurrentMapCacheManager(), true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void knownUserIsValidatedOnce() {
+    externalAPIService.validateUserId(1).block();
+    externalAPIService.validateUserId(1).block();
+
+    assertEquals(1, upstream.hits("/users/1"));
+  }
+
+  @Test
+  void unknownUserIsRejectedAndRememberedAfterA404() {
+    assertThrows(UserNotFoundException.class,
+        () -> externalAPIService.validateUserId(99).block());
+    assertThrows(UserNotFoundException.class,
+        () -> externalAPIService.validateUserId(99).block());
+
+    assertEquals(1, upstream.hits("/users/99"));
+  }
+
+  @Test
+  void throttledValidationIsAnExternalAPIErrorAndNotRemembered() {
+    upstream.setErrorStatus(429);
+    upstream.setErrorRate(1.0);
+
+    assertThrows(ExternalAPIErrorException.class,
+        () -> externalAPIService.validateUserId(1).block());
+    upstream.setErrorRate(0);
+    externalAPIService.validateUserId(1).block();
+
+    // 3 attempts of the failing read, then the one that validates the user
+    assertEquals(4, upstream.hits("/users/1"));
+  }
+
+  @Test
+  void warmUpMakesAllUsersKnownWithOneCall() {
+    externalAPIService.warmUpKnownUsers();
+
+    for (int userId = 1; userId <= StubUpstreamServer.USERS; userId++) {
+      externalAPIService.validateUserId(userId).block();
+    }
+
+    assertEquals(1, upstream.hits("/users"));
+    assertEquals(0, upstream.hits("/users/1"));
+  }
+}
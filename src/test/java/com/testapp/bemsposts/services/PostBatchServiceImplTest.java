@@ -0,0 +1,170 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostBatchItemDTO;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.support.NoOpCacheManager;
+
+class PostBatchServiceImplTest {
+  private StubUpstreamServer upstream;
+  private PostRepository postRepository;
+  private PostOutboxService postOutboxService;
+  private PostBatchServiceImpl postBatchService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    postRepository = mock(PostRepository.class);
+    // the real saveAllFromExternalAPI, keeping the last post of an id, on a saveAll that
+    // persists the posts as they are
+    when(postRepository.saveAllFromExternalAPI(any())).thenCallRealMethod();
+    when(postRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+      List<Post> saved = new ArrayList<>();
+      invocation.<Iterable<Post>>getArgument(0).forEach(post -> {
+        post.setVersion(0);
+        saved.add(post);
+      });
+      return saved;
+    });
+
+    postOutboxService = mock(PostOutboxService.class);
+    postBatchService = postBatchService(PostWriteMode.SYNC);
+  }
+
+  private PostBatchServiceImpl postBatchService(PostWriteMode writeMode) {
+    return new PostBatchServiceImpl(postRepository,
+        ExternalAPIServiceImplTest.externalAPIService(upstream), postOutboxService,
+        new NoOpCacheManager(), new LocalPostInvalidationBus(), writeMode, 1000, 8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void addPostsValidatesEachUserOnceAndSavesInOneCall() {
+    List<PostDTO> inputPosts = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputPosts.add(new PostDTO(1, "title " + i, "body " + i));
+    }
+    inputPosts.add(new PostDTO(99, "title", "body"));
+    inputPosts.add(new PostDTO(1, null, null));
+
+    List<PostBatchItemDTO> items = postBatchService.addPosts(inputPosts);
+
+    assertEquals(1, upstream.hits("/users/1"));
+    assertEquals(1, upstream.hits("/users/99"));
+    assertEquals(20, upstream.hits("/posts"));
+    verify(postRepository, times(1)).saveAllFromExternalAPI(anyList());
+    assertEquals(22, items.size());
+    assertEquals(201, items.get(0).getStatus());
+    assertEquals(400, items.get(20).getStatus());
+    assertEquals(400, items.get(21).getStatus());
+  }
+
+  @Test
+  void addPostsAnswersEveryItemWithItsOwnPostWhenExternalAPIReusesTheId() {
+    List<PostBatchItemDTO> items = postBatchService.addPosts(List.of(
+        new PostDTO(1, "first title", "first body"),
+        new PostDTO(1, "second title", "second body")));
+
+    // StubUpstreamServer answers every POST with id 101, like jsonplaceholder
+    assertEquals(101, items.get(0).getPost().getId());
+    assertEquals(101, items.get(1).getPost().getId());
+    assertEquals("first title", items.get(0).getPost().getTitle());
+    assertEquals("second title", items.get(1).getPost().getTitle());
+    assertEquals(201, items.get(0).getStatus());
+    assertEquals(201, items.get(1).getStatus());
+  }
+
+  @Test
+  void findByIdsCallsExternalAPIOnlyForPostsMissingLocally() {
+    when(postRepository.findAllById(any()))
+        .thenReturn(List.of(new Post(1, 1, "local title", "local body")));
+
+    List<PostBatchItemDTO> items = postBatchService.findByIds(List.of(1, 2, 500, 2));
+
+    assertEquals(0, upstream.hits("/posts/1"));
+    assertEquals(1, upstream.hits("/posts/2"));
+    assertEquals("local title", items.get(0).getPost().getTitle());
+    assertEquals(200, items.get(1).getStatus());
+    assertEquals(404, items.get(2).getStatus());
+    assertNull(items.get(2).getPost());
+    assertEquals(items.get(1), items.get(3));
+  }
+
+  @Test
+  void writeBehindAddPostsStoresThemLocallyInOneCallWithoutPostingToExternalAPI() {
+    when(postOutboxService.createPosts(anyList())).thenAnswer(invocation -> {
+      List<Post> posts = new ArrayList<>();
+      for (PostDTO inputPost : invocation.<List<PostDTO>>getArgument(0)) {
+        posts.add(new Post(1000001 + posts.size(), inputPost.getUserId(), inputPost.getTitle(),
+            inputPost.getBody(), 0));
+      }
+      return posts;
+    });
+
+    List<PostBatchItemDTO> items = postBatchService(PostWriteMode.WRITE_BEHIND).addPosts(List.of(
+        new PostDTO(1, "first title", "first body"),
+        new PostDTO(1, null, null),
+        new PostDTO(1, "second title", "second body")));
+
+    assertEquals(0, upstream.hits("/posts"));
+    verify(postOutboxService, times(1)).createPosts(anyList());
+    assertEquals(List.of(201, 400, 201), items.stream().map(PostBatchItemDTO::getStatus).toList());
+    assertEquals(1000001, items.get(0).getId());
+    assertEquals("second title", items.get(2).getPost().getTitle());
+  }
+
+  @Test
+  void writeBehindFindByIdsAnswersPostsWithAPendingDeleteWith404() {
+    when(postOutboxService.findHiddenUpstreamIds(any())).thenReturn(Set.of(2));
+
+    List<PostBatchItemDTO> items =
+        postBatchService(PostWriteMode.WRITE_BEHIND).findByIds(List.of(2, 3));
+
+    assertEquals(0, upstream.hits("/posts/2"));
+    assertEquals(1, upstream.hits("/posts/3"));
+    assertEquals(404, items.get(0).getStatus());
+    assertEquals(200, items.get(1).getStatus());
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Post>> stored = ArgumentCaptor.forClass(List.class);
+    verify(postRepository).saveAllFromExternalAPI(stored.capture());
+    assertEquals(List.of(3), stored.getValue().stream().map(Post::getId).toList());
+  }
+
+  @Test
+  void writeBehindDeletePostsByIdsStoresTheDeletesWithoutDeletingFromExternalAPI() {
+    List<PostBatchItemDTO> items =
+        postBatchService(PostWriteMode.WRITE_BEHIND).deletePostsByIds(List.of(4, 5, 4));
+
+    assertEquals(0, upstream.hits("/posts/4") + upstream.hits("/posts/5"));
+    verify(postOutboxService).deletePosts(List.of(4, 5));
+    verify(postRepository, never()).deleteAllByIdInBatch(any());
+    assertEquals(List.of(200, 200, 200),
+        items.stream().map(PostBatchItemDTO::getStatus).toList());
+  }
+}
@@ -0,0 +1,58 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.models.Post;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class PostCacheInvalidationTest {
+  private LocalPostInvalidationBus thisInstance;
+  private LocalPostInvalidationBus otherInstance;
+  private Cache otherPostCache;
+  private jakarta.persistence.Cache otherSecondLevelCache;
+
+  @BeforeEach
+  void setUp() {
+    thisInstance = new LocalPostInvalidationBus();
+    otherInstance = thisInstance.join();
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    otherPostCache = cacheManager.getCache(CacheConfiguration.POSTS_CACHE);
+    otherSecondLevelCache = mock(jakarta.persistence.Cache.class);
+    EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+    when(entityManagerFactory.getCache()).thenReturn(otherSecondLevelCache);
+    when(entityManagerFactory.unwrap(SessionFactory.class))
+        .thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+    new PostCacheInvalidation(cacheManager, entityManagerFactory, otherInstance);
+    otherPostCache.put(5, new Post(5, 1, "title", "body", 1));
+  }
+
+  @Test
+  void writeOnOneInstanceEvictsThePostOnTheOthers() {
+    thisInstance.publish(List.of(5, 6));
+
+    assertNull(otherPostCache.get(5));
+    verify(otherSecondLevelCache).evict(Post.class, 5);
+    verify(otherSecondLevelCache).evict(Post.class, 6);
+  }
+
+  @Test
+  void instanceKeepsThePostsItWroteItself() {
+    otherInstance.publish(List.of(5));
+
+    assertNotNull(otherPostCache.get(5));
+    verify(otherSecondLevelCache, never()).evict(Post.class, 5);
+  }
+}
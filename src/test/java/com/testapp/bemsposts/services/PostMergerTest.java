@@ -0,0 +1,71 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PostMergerTest {
+
+  @Test
+  void mergesByAscendingIdAndPrefersInternalPosts() {
+    Post internal2 = post(2, "internal");
+    Post internal5 = post(5, "internal");
+    List<Post> external = List.of(post(1, "external"), post(2, "external"), post(3, "external"));
+
+    List<Post> merged = PostMerger.merge(List.of(internal2, internal5), external);
+
+    assertEquals(List.of(1, 2, 3, 5), merged.stream().map(Post::getId).toList());
+    assertSame(internal2, merged.get(1));
+  }
+
+  @Test
+  void sortsUnorderedExternalPostsWithoutModifyingThem() {
+    List<Post> external = List.of(post(3, "external"), post(1, "external"), post(2, "external"));
+
+    List<Post> merged = PostMerger.merge(List.of(), external);
+
+    assertEquals(List.of(1, 2, 3), merged.stream().map(Post::getId).toList());
+    assertEquals(3, external.get(0).getId());
+  }
+
+  @Test
+  void streamsMergedPostsToSink() {
+    List<Post> sink = new ArrayList<>();
+
+    PostMerger.merge(List.of(post(1, "internal")).iterator(),
+        List.of(post(1, "external"), post(1, "external"), post(4, "external")), sink::add);
+
+    assertEquals(List.of(1, 4), sink.stream().map(Post::getId).toList());
+    assertEquals("internal", sink.get(0).getTitle());
+  }
+
+  @Test
+  void pagesMergedPostsAfterCursor() {
+    List<Post> internal = List.of(post(4, "internal"), post(6, "internal"), post(8, "internal"));
+    List<Post> external = List.of(post(1, "external"), post(3, "external"), post(5, "external"));
+
+    PostListDTO page = PostMerger.mergePage(internal, external, 3, 2, false);
+
+    assertEquals(List.of(4, 5), page.getPosts().stream().map(Post::getId).toList());
+    assertEquals(5, page.getNextCursor());
+  }
+
+  @Test
+  void lastPageHasNoNextCursor() {
+    PostListDTO page = PostMerger.mergePage(List.of(post(4, "internal")),
+        List.of(post(5, "external")), 3, 2, false);
+
+    assertEquals(List.of(4, 5), page.getPosts().stream().map(Post::getId).toList());
+    assertNull(page.getNextCursor());
+  }
+
+  private static Post post(int id, String title) {
+    return new Post(id, 1, title, "body");
+  }
+}
@@ -0,0 +1,62 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class PostMetricsTest {
+  private SimpleMeterRegistry meterRegistry;
+  private PostMetrics postMetrics;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    postMetrics = new PostMetrics(meterRegistry);
+  }
+
+  @Test
+  void serviceCallsAreTimedWithTheExceptionTheyEndedWith() {
+    postMetrics.timeService("findById", () -> "post");
+    assertThrows(PostNotFoundException.class, () -> postMetrics.timeService("findById",
+        () -> {
+          throw new PostNotFoundException("Post Not Found");
+        }));
+
+    assertEquals(1, serviceCount("findById", "blocking", "none"));
+    assertEquals(1, serviceCount("findById", "blocking", "PostNotFoundException"));
+  }
+
+  @Test
+  void reactiveServiceCallsAreTimedWhenSubscribed() {
+    Mono<String> call = postMetrics.timeService("findById", Mono.just("post"));
+    assertEquals(0, serviceCount("findById", "reactive", "none"));
+
+    call.block();
+    call.block();
+
+    assertEquals(2, serviceCount("findById", "reactive", "none"));
+  }
+
+  @Test
+  void externalAPICallsCancelledByTheCallerAreTaggedCancelled() {
+    postMetrics.timeExternalAPI("findPostsByUserId", Flux.never())
+        .timeout(Duration.ofMillis(10), Flux.empty())
+        .blockLast();
+
+    assertEquals(1, meterRegistry.get(PostMetrics.EXTERNAL_API_TIMER)
+        .tag("operation", "findPostsByUserId").tag("exception", "cancelled").timer().count());
+  }
+
+  private long serviceCount(String method, String mode, String exception) {
+    return meterRegistry.find(PostMetrics.SERVICE_TIMER)
+        .tag("method", method).tag("mode", mode).tag("exception", exception)
+        .timers().stream().mapToLong(timer -> timer.count()).sum();
+  }
+}
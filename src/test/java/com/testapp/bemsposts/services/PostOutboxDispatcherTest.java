@@ -0,0 +1,191 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.models.PostExternalId;
+import com.testapp.bemsposts.models.PostOutboxEntry;
+import com.testapp.bemsposts.models.PostOutboxOperation;
+import com.testapp.bemsposts.repositories.PostExternalIdRepository;
+import com.testapp.bemsposts.repositories.PostOutboxRepository;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class PostOutboxDispatcherTest {
+  private static final int MAX_ATTEMPTS = 3;
+
+  private StubUpstreamServer upstream;
+  private PostOutboxRepository postOutboxRepository;
+  private PostExternalIdRepository postExternalIdRepository;
+  private PostOutboxDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    postOutboxRepository = mock(PostOutboxRepository.class);
+    postExternalIdRepository = mock(PostExternalIdRepository.class);
+
+    ExternalAPIServiceImpl externalAPIService =
+        ExternalAPIServiceImplTest.externalAPIService(upstream);
+    dispatcher = new PostOutboxDispatcher(postOutboxRepository, postExternalIdRepository,
+        externalAPIService, 100, 4, Duration.ofSeconds(1), Duration.ofMinutes(5), MAX_ATTEMPTS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void dispatchRemovesDeliveredMutationsAndDeadLettersRejectedOnes() {
+    PostOutboxEntry rejected = entry(4L, 500, PostOutboxOperation.UPDATE, 0);
+    givenOutbox(
+        entry(1L, 1000001, PostOutboxOperation.CREATE, 0),
+        entry(2L, 5, PostOutboxOperation.UPDATE, 0),
+        entry(3L, 5, PostOutboxOperation.DELETE, 0),
+        rejected);
+
+    dispatcher.dispatch();
+
+    assertEquals(1, upstream.hits("/posts"));
+    // PUT of the update, then the DELETE
+    assertEquals(2, upstream.hits("/posts/5"));
+    assertEquals(Set.of(1L, 2L, 3L), deletedIds());
+    verify(postOutboxRepository).saveAll(List.of(rejected));
+    assertNotNull(rejected.getDeadLetteredAt());
+  }
+
+  @Test
+  void failedMutationIsRescheduledAndHoldsBackLaterOnesOfItsPost() {
+    PostOutboxEntry update = entry(1L, 5, PostOutboxOperation.UPDATE, 0);
+    PostOutboxEntry delete = entry(2L, 5, PostOutboxOperation.DELETE, 0);
+    givenOutbox(update, delete);
+    upstream.close();
+
+    dispatcher.dispatch();
+
+    verify(postOutboxRepository, never()).deleteAllByIdInBatch(anyList());
+    verify(postOutboxRepository).saveAll(List.of(update));
+    assertEquals(1, update.getAttempts());
+    assertTrue(update.getNextAttemptAt().isAfter(Instant.now()));
+    assertNull(update.getDeadLetteredAt());
+    assertEquals(0, delete.getAttempts());
+  }
+
+  @Test
+  void throttledMutationIsRetriedAndNotDeadLettered() {
+    PostOutboxEntry update = entry(1L, 5, PostOutboxOperation.UPDATE, 0);
+    givenOutbox(update);
+    upstream.setErrorStatus(429);
+    upstream.setErrorRate(1.0);
+
+    dispatcher.dispatch();
+
+    assertEquals(1, upstream.hits("/posts/5"));
+    verify(postOutboxRepository).saveAll(List.of(update));
+    assertEquals(1, update.getAttempts());
+    assertTrue(update.getNextAttemptAt().isAfter(Instant.now()));
+    assertNull(update.getDeadLetteredAt());
+  }
+
+  @Test
+  void mutationFailingMaxAttemptsTimesIsDeadLetteredAndNoLongerHoldsBackItsPost() {
+    PostOutboxEntry update = entry(1L, 5, PostOutboxOperation.UPDATE, MAX_ATTEMPTS - 1);
+    PostOutboxEntry delete = entry(2L, 5, PostOutboxOperation.DELETE, 0);
+    givenOutbox(update, delete);
+    upstream.close();
+
+    dispatcher.dispatch();
+
+    assertEquals(MAX_ATTEMPTS, update.getAttempts());
+    assertNotNull(update.getDeadLetteredAt());
+    // the delete was tried in the same run and is backing off now
+    assertEquals(1, delete.getAttempts());
+    assertNull(delete.getDeadLetteredAt());
+  }
+
+  @Test
+  void mutationsOfAPostCreatedHereAreSentWithTheIdExternalAPIGaveIt() {
+    givenOutbox(
+        entry(1L, 1000001, PostOutboxOperation.CREATE, 0),
+        entry(2L, 1000001, PostOutboxOperation.DELETE, 0),
+        entry(3L, 1000002, PostOutboxOperation.UPDATE, 0));
+    when(postExternalIdRepository.findAllById(any())).thenReturn(List.of(
+        new PostExternalId(1000001, null),
+        new PostExternalId(1000002, 7)));
+
+    dispatcher.dispatch();
+
+    // StubUpstreamServer answers every POST with id 101
+    assertEquals(1, upstream.hits("/posts/101"));
+    assertEquals(1, upstream.hits("/posts/7"));
+    assertEquals(0, upstream.hits("/posts/1000001") + upstream.hits("/posts/1000002"));
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<PostExternalId>> externalIds = ArgumentCaptor.forClass(List.class);
+    verify(postExternalIdRepository).saveAll(externalIds.capture());
+    assertEquals(101, externalIds.getValue().get(0).getExternalId());
+  }
+
+  @Test
+  void retriedCreateIsSentWithTheSameIdempotencyKey() {
+    givenOutbox(entry(1L, 1000001, PostOutboxOperation.CREATE, 0));
+    upstream.setErrorRate(1.0);
+
+    dispatcher.dispatch();
+    String firstKey =
+        upstream.requestHeader("/posts", ExternalAPIServiceImpl.IDEMPOTENCY_KEY_HEADER);
+    upstream.setErrorRate(0);
+    dispatcher.dispatch();
+
+    assertEquals("post-1000001", firstKey);
+    assertEquals(firstKey,
+        upstream.requestHeader("/posts", ExternalAPIServiceImpl.IDEMPOTENCY_KEY_HEADER));
+  }
+
+  @Test
+  void mutationsOfAPostExternalAPINeverCreatedAreDeadLettered() {
+    PostOutboxEntry update = entry(1L, 1000001, PostOutboxOperation.UPDATE, 0);
+    givenOutbox(update);
+    when(postExternalIdRepository.findAllById(any()))
+        .thenReturn(List.of(new PostExternalId(1000001, null)));
+
+    dispatcher.dispatch();
+
+    assertEquals(0, upstream.hits("/posts/1000001"));
+    assertNotNull(update.getDeadLetteredAt());
+  }
+
+  private void givenOutbox(PostOutboxEntry... entries) {
+    when(postOutboxRepository.findDue(any(), any())).thenReturn(List.of(entries));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<Long> deletedIds() {
+    ArgumentCaptor<List<Long>> ids = ArgumentCaptor.forClass(List.class);
+    verify(postOutboxRepository).deleteAllByIdInBatch(ids.capture());
+    return new HashSet<>(ids.getValue());
+  }
+
+  private static PostOutboxEntry entry(
+      Long id, Integer postId, PostOutboxOperation operation, int attempts) {
+    return new PostOutboxEntry(
+        id, postId, operation, 1, "title", "body", attempts, Instant.now(), null, null);
+  }
+}
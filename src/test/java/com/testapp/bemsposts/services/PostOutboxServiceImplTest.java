@@ -0,0 +1,98 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostExternalId;
+import com.testapp.bemsposts.models.PostOutboxEntry;
+import com.testapp.bemsposts.models.PostOutboxOperation;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.repositories.PostExternalIdRepository;
+import com.testapp.bemsposts.repositories.PostOutboxRepository;
+import com.testapp.bemsposts.repositories.PostRepository;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+// Each write-behind write stores the local change and its pending mutation together. H2 runs in
+// PostgreSQL mode for the nextval() of the local id sequence.
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:outbox;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostOutboxServiceImpl.class)
+class PostOutboxServiceImplTest {
+  @Autowired
+  private PostOutboxService postOutboxService;
+  @Autowired
+  private PostRepository postRepository;
+  @Autowired
+  private PostOutboxRepository postOutboxRepository;
+  @Autowired
+  private PostExternalIdRepository postExternalIdRepository;
+
+  @Test
+  void createdPostGetsALocalIdAndAPendingCreate() {
+    Post post = postOutboxService.createPost(new PostDTO(1, "title", "body"));
+
+    assertTrue(post.getId() > 1000000);
+    assertTrue(postRepository.existsById(post.getId()));
+    assertEquals(List.of(PostOutboxOperation.CREATE), operationsOf(post.getId()));
+    assertNull(postExternalIdRepository.findById(post.getId()).orElseThrow().getExternalId());
+  }
+
+  @Test
+  void updatedPostGetsANewVersionAndAPendingUpdate() {
+    Post post = postRepository.saveAllFromExternalAPI(List.of(new Post(5, 1, "title", "body")))
+        .get(0);
+
+    Post updatedPost =
+        postOutboxService.updatePost(post, new PostUpdateDTO("new title", null, null));
+
+    assertEquals(post.getVersion() + 1, updatedPost.getVersion());
+    assertEquals(List.of(PostOutboxOperation.UPDATE), operationsOf(5));
+    assertEquals("new title", postOutboxRepository.findAll().get(0).getTitle());
+  }
+
+  @Test
+  void deletedPostIsRemovedAndItsDeleteIsPending() {
+    postRepository.saveAllFromExternalAPI(List.of(new Post(5, 1, "title", "body")));
+
+    postOutboxService.deletePost(5);
+
+    assertFalse(postRepository.existsById(5));
+    assertEquals(List.of(PostOutboxOperation.DELETE), operationsOf(5));
+    assertTrue(postOutboxService.isHiddenUpstream(5));
+    assertFalse(postOutboxService.isHiddenUpstream(6));
+    assertEquals(Set.of(5), postOutboxService.findHiddenUpstreamIds(List.of(5, 6)));
+  }
+
+  @Test
+  void upstreamCopyOfACreatedPostIsHidden() {
+    Post post = postOutboxService.createPost(new PostDTO(1, "title", "body"));
+    postExternalIdRepository.save(new PostExternalId(post.getId(), 101));
+
+    assertEquals(Set.of(101), postOutboxService.findHiddenUpstreamIds(List.of(101, 102)));
+    List<Post> externalPosts = postOutboxService.withoutHiddenUpstream(List.of(
+        new Post(101, 1, "title", "body"), new Post(102, 1, "title", "body")));
+    assertEquals(List.of(102), externalPosts.stream().map(Post::getId).toList());
+  }
+
+  private List<PostOutboxOperation> operationsOf(Integer postId) {
+    return postOutboxRepository.findAll().stream()
+        .filter(entry -> entry.getPostId().equals(postId))
+        .map(PostOutboxEntry::getOperation)
+        .toList();
+  }
+}
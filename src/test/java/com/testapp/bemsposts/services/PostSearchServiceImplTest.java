@@ -0,0 +1,90 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.exceptions.NullInputException;
+import com.testapp.bemsposts.exceptions.SearchNotSupportedException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Paging and validation of the search, the query itself runs in PostRepositorySearchTest
+class PostSearchServiceImplTest {
+  private static final String POSTGRES_URL = "jdbc:postgresql://localhost:5432/posts";
+
+  private PostRepository postRepository;
+  private PostSearchServiceImpl postSearchService;
+
+  @BeforeEach
+  void setUp() {
+    postRepository = mock(PostRepository.class);
+    postSearchService = new PostSearchServiceImpl(postRepository, new SimpleMeterRegistry(),
+        POSTGRES_URL, 100, 1000);
+  }
+
+  @Test
+  void fullPageHasTheOffsetOfTheNextPageAsCursor() {
+    when(postRepository.search("title", 20, 11, 1000)).thenReturn(posts(11));
+
+    PostListDTO result = postSearchService.searchPosts(" title ", 20, 10);
+
+    assertEquals(10, result.getPosts().size());
+    assertEquals(30, result.getNextCursor());
+  }
+
+  @Test
+  void lastPageHasNoCursor() {
+    when(postRepository.search("title", 0, 11, 1000)).thenReturn(posts(3));
+
+    PostListDTO result = postSearchService.searchPosts("title", null, 10);
+
+    assertEquals(3, result.getPosts().size());
+    assertNull(result.getNextCursor());
+  }
+
+  @Test
+  void limitIsCappedAtTheMaximum() {
+    when(postRepository.search("title", 0, 101, 1000)).thenReturn(posts(0));
+
+    postSearchService.searchPosts("title", null, 5000);
+
+    verify(postRepository).search("title", 0, 101, 1000);
+  }
+
+  @Test
+  void blankQueryIsRejectedWithoutQueryingTheDb() {
+    assertThrows(NullInputException.class, () -> postSearchService.searchPosts(" ", null, 10));
+    verify(postRepository, never()).search(anyString(), anyInt(), anyInt(), anyInt());
+  }
+
+  @Test
+  void searchOnAnotherDbThanPostgresqlIsRejectedWithoutQueryingTheDb() {
+    PostSearchServiceImpl h2SearchService = new PostSearchServiceImpl(postRepository,
+        new SimpleMeterRegistry(), "jdbc:h2:mem:posts", 100, 1000);
+
+    assertThrows(SearchNotSupportedException.class,
+        () -> h2SearchService.searchPosts("title", null, 10));
+    verify(postRepository, never()).search(anyString(), anyInt(), anyInt(), anyInt());
+  }
+
+  private static List<Post> posts(int count) {
+    List<Post> posts = new ArrayList<>();
+    for (int id = 1; id <= count; id++) {
+      posts.add(new Post(id, 1, "title " + id, "body " + id));
+    }
+    return posts;
+  }
+}
@@ -0,0 +1,193 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.exceptions.ExternalAPIUnavailableException;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Flux;
+
+class PostServiceImplConcurrencyTest {
+  private static final int CALLERS = 50;
+
+  private StubUpstreamServer upstream;
+  private ExecutorService callers;
+  private PostRepository postRepository;
+  private ExternalAPIServiceImpl externalAPIService;
+  private PostServiceImpl postService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    upstream.setLatency(Duration.ofMillis(300));
+    callers = Executors.newFixedThreadPool(CALLERS);
+
+    postRepository = mock(PostRepository.class);
+    when(postRepository.findById(any())).thenReturn(Optional.empty());
+    when(postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(any(), any(), any()))
+        .thenAnswer(invocation -> new ArrayList<>());
+    when(postRepository.saveAllFromExternalAPI(any()))
+        .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Post>>getArgument(0)));
+
+    // no cache, so every caller really misses and only the coalescing can save upstream calls
+    externalAPIService = ExternalAPIServiceImplTest.externalAPIService(upstream);
+    postService = new PostServiceImpl(postRepository, externalAPIService,
+        mock(PostOutboxService.class), mock(PostSyncService.class),
+        new NoOpCacheManager(), new LocalPostInvalidationBus(),
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), PostWriteMode.SYNC,
+        Duration.ofSeconds(5), 1000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    callers.shutdownNow();
+    upstream.close();
+  }
+
+  @Test
+  void concurrentFindByIdMissesMakeOneUpstreamCallAndOneInsert() throws Exception {
+    List<Object> results = runConcurrently(() -> postService.findById(7));
+
+    assertEquals(1, upstream.hits("/posts/7"));
+    verify(postRepository, times(1)).saveAllFromExternalAPI(any());
+    for (Object result : results) {
+      assertEquals(7, ((Post) result).getId());
+    }
+  }
+
+  @Test
+  void concurrentFindByIdMissesShareTheUpstreamError() throws Exception {
+    List<Object> results = runConcurrently(() -> postService.findById(404));
+
+    assertEquals(1, upstream.hits("/posts/404"));
+    verify(postRepository, never()).saveAllFromExternalAPI(any());
+    for (Object result : results) {
+      assertInstanceOf(PostNotFoundException.class, result);
+    }
+  }
+
+  @Test
+  void concurrentFindPostsByUserIdMakesOneUpstreamCall() throws Exception {
+    List<Object> results = runConcurrently(() -> postService.findPostsByUserId(3, null, 100));
+
+    assertEquals(1, upstream.hits("/posts?userId=3"));
+    for (Object result : results) {
+      assertEquals(StubUpstreamServer.POSTS_PER_USER, ((PostListDTO) result).getPosts().size());
+    }
+  }
+
+  @Test
+  void exportAsksExternalAPIBeforeTheTransactionTakesAConnection() {
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    List<Integer> upstreamHitsAtTransactionStart = new ArrayList<>();
+    when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+      upstreamHitsAtTransactionStart.add(upstream.hits("/posts?userId=3"));
+      return null;
+    });
+    when(postRepository.streamAllByUserId(3)).thenReturn(Stream.empty());
+    PostServiceImpl exportingPostService = new PostServiceImpl(postRepository,
+        externalAPIService, mock(PostOutboxService.class), mock(PostSyncService.class),
+        new NoOpCacheManager(), new LocalPostInvalidationBus(), transactionManager,
+        new SimpleMeterRegistry(), PostWriteMode.SYNC, Duration.ofSeconds(5), 1000);
+
+    List<Post> exported = new ArrayList<>();
+    exportingPostService.exportPostsByUserId(3, exported::add);
+
+    assertEquals(List.of(1), upstreamHitsAtTransactionStart);
+    assertEquals(StubUpstreamServer.POSTS_PER_USER, exported.size());
+  }
+
+  @Test
+  void findPostsByUserIdReturnsLocalPostsWhenExternalAPIMissesDeadline() {
+    Post localPost = new Post(1000, 3, "local title", "local body");
+    when(postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(eq(3), eq(0), any()))
+        .thenAnswer(invocation -> new ArrayList<>(List.of(localPost)));
+    PostServiceImpl impatientPostService = new PostServiceImpl(postRepository, externalAPIService,
+        mock(PostOutboxService.class), mock(PostSyncService.class),
+        new NoOpCacheManager(), new LocalPostInvalidationBus(),
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), PostWriteMode.SYNC,
+        Duration.ofMillis(50), 1000);
+
+    PostListDTO result = impatientPostService.findPostsByUserId(3, null, 100);
+
+    assertTrue(result.isPartial());
+    assertEquals(List.of(localPost), result.getPosts());
+  }
+
+  @Test
+  void findPostsByUserIdReturnsLocalPostsRightAwayWhenExternalAPIIsUnavailable() {
+    Post localPost = new Post(1000, 3, "local title", "local body");
+    when(postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(eq(3), eq(0), any()))
+        .thenAnswer(invocation -> new ArrayList<>(List.of(localPost)));
+    ExternalAPIService unavailableExternalAPI = mock(ExternalAPIService.class);
+    when(unavailableExternalAPI.findPostsByUserId(3))
+        .thenReturn(Flux.error(new ExternalAPIUnavailableException("External API Unavailable")));
+    PostServiceImpl fallbackPostService = new PostServiceImpl(postRepository,
+        unavailableExternalAPI, mock(PostOutboxService.class), mock(PostSyncService.class),
+        new NoOpCacheManager(), new LocalPostInvalidationBus(),
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), PostWriteMode.SYNC,
+        Duration.ofSeconds(5), 1000);
+
+    PostListDTO result = assertTimeoutPreemptively(Duration.ofSeconds(1),
+        () -> fallbackPostService.findPostsByUserId(3, null, 100));
+
+    assertTrue(result.isPartial());
+    assertEquals(List.of(localPost), result.getPosts());
+  }
+
+  // Releases all callers at once and returns each caller's result, or the exception it got
+  private List<Object> runConcurrently(Callable<Object> call) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Object>> futures = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      futures.add(callers.submit(() -> {
+        start.await();
+        return call.call();
+      }));
+    }
+    start.countDown();
+
+    List<Object> results = new ArrayList<>();
+    for (Future<Object> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException exception) {
+        results.add(exception.getCause());
+      }
+    }
+    return results;
+  }
+}
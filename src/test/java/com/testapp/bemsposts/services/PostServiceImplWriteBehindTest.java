@@ -0,0 +1,128 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.exceptions.PostNotFoundException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostDTO;
+import com.testapp.bemsposts.models.PostListDTO;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Writes end with the local transaction of PostOutboxService, external API only validates users
+class PostServiceImplWriteBehindTest {
+  private StubUpstreamServer upstream;
+  private PostRepository postRepository;
+  private PostOutboxService postOutboxService;
+  private Cache postCache;
+  private PostServiceImpl postService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    postRepository = mock(PostRepository.class);
+    when(postRepository.findById(any())).thenReturn(Optional.empty());
+    when(postRepository.findById(5)).thenReturn(Optional.of(new Post(5, 1, "title", "body", 2)));
+    postOutboxService = mock(PostOutboxService.class);
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    postCache = cacheManager.getCache(CacheConfiguration.POSTS_CACHE);
+    postService = new PostServiceImpl(postRepository,
+        ExternalAPIServiceImplTest.externalAPIService(upstream), postOutboxService,
+        mock(PostSyncService.class), cacheManager, new LocalPostInvalidationBus(),
+        mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+        PostWriteMode.WRITE_BEHIND, Duration.ofSeconds(5), 1000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void addPostIsStoredLocallyWithoutPostingToExternalAPI() {
+    PostDTO inputPost = new PostDTO(1, "title", "body");
+    Post localPost = new Post(1000001, 1, "title", "body", 0);
+    when(postOutboxService.createPost(inputPost)).thenReturn(localPost);
+
+    Post post = postService.addPost(inputPost);
+
+    assertEquals(localPost, post);
+    assertEquals(1, upstream.hits("/users/1"));
+    assertEquals(0, upstream.hits("/posts"));
+    assertEquals(localPost, postCache.get(1000001).get());
+  }
+
+  @Test
+  void updateIsStoredLocallyWithoutPuttingToExternalAPI() {
+    PostUpdateDTO inputPost = new PostUpdateDTO("new title", null, 2);
+    Post updatedPost = new Post(5, 1, "new title", "body", 3);
+    when(postOutboxService.updatePost(any(), any())).thenReturn(updatedPost);
+
+    Post post = postService.updatePostById(5, inputPost);
+
+    assertEquals(updatedPost, post);
+    assertEquals(0, upstream.hits("/posts/5"));
+    verify(postRepository, never()).updateTitleAndBody(any(), any(), any(), any());
+    assertEquals(updatedPost, postCache.get(5).get());
+  }
+
+  @Test
+  void deleteIsStoredLocallyWithoutDeletingFromExternalAPI() {
+    postCache.put(5, new Post(5, 1, "title", "body", 2));
+
+    postService.deletePostById(5);
+
+    verify(postOutboxService).deletePost(5);
+    verify(postRepository, never()).deleteAllByIdInBatch(any());
+    assertEquals(0, upstream.hits("/posts/5"));
+    assertNull(postCache.get(5));
+  }
+
+  @Test
+  void postDeletedOrCreatedLocallyIsNotFetchedBackFromExternalAPI() {
+    when(postOutboxService.isHiddenUpstream(7)).thenReturn(true);
+
+    assertThrows(PostNotFoundException.class, () -> postService.findById(7));
+
+    assertEquals(0, upstream.hits("/posts/7"));
+    verify(postRepository, never()).saveAllFromExternalAPI(any());
+  }
+
+  @Test
+  void upstreamCopyOfAPostCreatedLocallyIsLeftOutOfTheUserPosts() {
+    // external API holds the local post 1000001 as its post 1
+    when(postRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(any(), any(), any()))
+        .thenReturn(List.of(new Post(1000001, 1, "title", "body", 0)));
+    when(postOutboxService.withoutHiddenUpstream(anyList())).thenAnswer(invocation -> {
+      List<Post> externalPosts = invocation.getArgument(0);
+      return externalPosts.stream().filter(post -> post.getId() != 1).toList();
+    });
+
+    PostListDTO page = postService.findPostsByUserId(1, null, 20);
+
+    List<Integer> ids = page.getPosts().stream().map(Post::getId).toList();
+    assertEquals(List.of(2, 3, 4, 5, 6, 7, 8, 9, 10, 1000001), ids);
+  }
+}
@@ -0,0 +1,114 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class PostSyncServiceImplTest {
+  private StubUpstreamServer upstream;
+  private PostRepository postRepository;
+  private ExternalAPIServiceImpl externalAPIService;
+  private LocalPostInvalidationBus postInvalidationBus;
+  private List<Integer> evictedOnOtherInstance;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    postRepository = mock(PostRepository.class);
+    when(postRepository.saveAllFromExternalAPI(any()))
+        .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Post>>getArgument(0)));
+
+    externalAPIService = ExternalAPIServiceImplTest.externalAPIService(upstream);
+    postInvalidationBus = new LocalPostInvalidationBus();
+    evictedOnOtherInstance = new CopyOnWriteArrayList<>();
+    postInvalidationBus.join().subscribe(evictedOnOtherInstance::add, () -> {
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  private PostSyncServiceImpl postSyncService(boolean enabled, Duration refreshAfter) {
+    return new PostSyncServiceImpl(postRepository, externalAPIService,
+        mock(PostOutboxService.class), postInvalidationBus, new SimpleMeterRegistry(),
+        PostWriteMode.SYNC, enabled, Duration.ofMinutes(10), 1000, Duration.ofMinutes(1),
+        refreshAfter, 100, 4);
+  }
+
+  @Test
+  void requestedUserIsFreshAfterSyncAndOnlyNewPostsAreStored() {
+    when(postRepository.findStoredIds(any())).thenReturn(Set.of(1, 2, 3));
+    PostSyncServiceImpl postSyncService = postSyncService(true, Duration.ofSeconds(30));
+
+    postSyncService.userRequested(1);
+    assertFalse(postSyncService.isFresh(1));
+    postSyncService.sync();
+
+    assertTrue(postSyncService.isFresh(1));
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Post>> stored = ArgumentCaptor.forClass(List.class);
+    verify(postRepository).saveAllFromExternalAPI(stored.capture());
+    assertEquals(StubUpstreamServer.POSTS_PER_USER - 3, stored.getValue().size());
+    assertTrue(stored.getValue().stream().noneMatch(post -> post.getId() <= 3));
+    assertEquals(stored.getValue().stream().map(Post::getId).toList(), evictedOnOtherInstance);
+  }
+
+  @Test
+  void freshUserIsNotSyncedAgainBeforeRefreshAfter() {
+    when(postRepository.findStoredIds(any())).thenReturn(Set.of());
+    PostSyncServiceImpl postSyncService = postSyncService(true, Duration.ofSeconds(30));
+
+    postSyncService.userRequested(1);
+    postSyncService.sync();
+    postSyncService.sync();
+
+    assertEquals(1, upstream.hits("/posts?userId=1"));
+  }
+
+  @Test
+  void userStaysStaleWhileExternalAPIFails() {
+    upstream.setErrorRate(1.0);
+    PostSyncServiceImpl postSyncService = postSyncService(true, Duration.ofSeconds(30));
+
+    postSyncService.userRequested(1);
+    postSyncService.sync();
+
+    assertFalse(postSyncService.isFresh(1));
+    verify(postRepository, never()).saveAllFromExternalAPI(any());
+  }
+
+  @Test
+  void disabledSyncNeitherTracksNorCallsExternalAPI() {
+    PostSyncServiceImpl postSyncService = postSyncService(false, Duration.ofSeconds(30));
+
+    postSyncService.userRequested(1);
+    postSyncService.sync();
+
+    assertFalse(postSyncService.isFresh(1));
+    assertEquals(0, upstream.hits("/posts?userId=1"));
+  }
+}
@@ -0,0 +1,96 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// Two instances on one PostgreSQL, skipped without Docker. The other instance listens on its own
+// connection, it evicts everything once it listens and again after each reconnect.
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresPostInvalidationBusListenTest {
+  @Container
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  private JdbcTemplate jdbcTemplate;
+  private PostgresPostInvalidationBus thisInstance;
+  private PostgresPostInvalidationBus otherInstance;
+  private BlockingQueue<Integer> evicted;
+  private Semaphore evictedAll;
+
+  @BeforeEach
+  void setUp() throws InterruptedException {
+    jdbcTemplate = new JdbcTemplate(dataSource());
+    thisInstance = bus();
+    otherInstance = bus();
+    evicted = new LinkedBlockingQueue<>();
+    evictedAll = new Semaphore(0);
+    otherInstance.subscribe(evicted::add, evictedAll::release);
+    otherInstance.start();
+    assertTrue(evictedAll.tryAcquire(10, TimeUnit.SECONDS));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    otherInstance.destroy();
+  }
+
+  @Test
+  void publishedIdsAreEvictedByTheOtherInstance() throws InterruptedException {
+    thisInstance.publish(List.of(5, 6));
+
+    assertEquals(5, evicted.poll(10, TimeUnit.SECONDS));
+    assertEquals(6, evicted.poll(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void idsOverOnePayloadAllArrive() throws InterruptedException {
+    List<Integer> postIds = IntStream.rangeClosed(1000001, 1003000).boxed().toList();
+
+    thisInstance.publish(postIds);
+
+    for (Integer postId : postIds) {
+      assertEquals(postId, evicted.poll(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void listenerReconnectsAndEvictsEverythingAfterItsConnectionDropped()
+      throws InterruptedException {
+    List<Boolean> terminated = jdbcTemplate.queryForList("select pg_terminate_backend(pid)"
+        + " from pg_stat_activity where query = 'listen " + PostgresPostInvalidationBus.CHANNEL
+        + "'", Boolean.class);
+
+    assertEquals(List.of(true), terminated);
+    assertTrue(evictedAll.tryAcquire(10, TimeUnit.SECONDS));
+    thisInstance.publish(List.of(5));
+    assertEquals(5, evicted.poll(10, TimeUnit.SECONDS));
+  }
+
+  private PostgresPostInvalidationBus bus() {
+    DataSource dataSource = dataSource();
+    return new PostgresPostInvalidationBus(new JdbcTemplate(dataSource),
+        new DataSourceTransactionManager(dataSource), postgres.getJdbcUrl(),
+        postgres.getUsername(), postgres.getPassword());
+  }
+
+  private static DataSource dataSource() {
+    return new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+        postgres.getPassword());
+  }
+}
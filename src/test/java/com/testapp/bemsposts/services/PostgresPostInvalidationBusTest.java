@@ -0,0 +1,91 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Payloads of the NOTIFY bus without a DB, the sent payloads are handed to the other instance
+// the way its listener would. PostgresPostInvalidationBusListenTest runs it on PostgreSQL.
+class PostgresPostInvalidationBusTest {
+  private static final String URL = "jdbc:postgresql://localhost:5432/posts";
+
+  private JdbcTemplate jdbcTemplate;
+  private PostgresPostInvalidationBus thisInstance;
+  private PostgresPostInvalidationBus otherInstance;
+  private List<Integer> evicted;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    thisInstance = new PostgresPostInvalidationBus(jdbcTemplate,
+        mock(PlatformTransactionManager.class), URL, "posts", "posts");
+    otherInstance = new PostgresPostInvalidationBus(mock(JdbcTemplate.class),
+        mock(PlatformTransactionManager.class), URL, "posts", "posts");
+    evicted = new ArrayList<>();
+    otherInstance.subscribe(evicted::add, () -> { });
+  }
+
+  @Test
+  void manyIdsAreSplitIntoPayloadsUnderTheNotifyLimit() {
+    List<Integer> postIds = IntStream.rangeClosed(1000001, 1005000).boxed().toList();
+
+    List<String> payloads = thisInstance.payloads(postIds);
+
+    assertTrue(payloads.size() > 1);
+    assertTrue(payloads.stream().allMatch(payload -> payload.getBytes(StandardCharsets.UTF_8)
+        .length <= PostgresPostInvalidationBus.MAX_PAYLOAD_LENGTH));
+    payloads.forEach(otherInstance::receive);
+    assertEquals(postIds, evicted);
+  }
+
+  @Test
+  void everyPayloadIsNotifiedOnTheChannel() {
+    List<Integer> postIds = IntStream.rangeClosed(1, 3000).boxed().toList();
+
+    thisInstance.publish(postIds);
+
+    ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+    verify(jdbcTemplate, times(thisInstance.payloads(postIds).size()))
+        .queryForList(eq("select pg_notify(?, ?)"), eq(PostgresPostInvalidationBus.CHANNEL),
+            payloads.capture());
+    payloads.getAllValues().forEach(payload -> otherInstance.receive((String) payload));
+    assertEquals(postIds, evicted);
+  }
+
+  @Test
+  void instanceIgnoresItsOwnPayloads() {
+    List<Integer> ownEvicted = new ArrayList<>();
+    thisInstance.subscribe(ownEvicted::add, () -> { });
+
+    thisInstance.payloads(List.of(5, 6)).forEach(thisInstance::receive);
+
+    assertTrue(ownEvicted.isEmpty());
+  }
+
+  @Test
+  void failedPublishDoesNotFailTheWrite() {
+    // other instances keep their copies until the cache entries expire
+    when(jdbcTemplate.queryForList(eq("select pg_notify(?, ?)"),
+        eq(PostgresPostInvalidationBus.CHANNEL), any()))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertDoesNotThrow(() -> thisInstance.publish(List.of(5)));
+  }
+}
@@ -0,0 +1,101 @@
+package com.testapp.bemsposts.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.testapp.bemsposts.StubUpstreamServer;
+import com.testapp.bemsposts.configurations.CacheConfiguration;
+import com.testapp.bemsposts.exceptions.ExternalAPIErrorException;
+import com.testapp.bemsposts.exceptions.PostVersionConflictException;
+import com.testapp.bemsposts.models.Post;
+import com.testapp.bemsposts.models.PostUpdateDTO;
+import com.testapp.bemsposts.models.PostWriteMode;
+import com.testapp.bemsposts.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+// Same cases as PostServiceImplUpdateTest, through the non-blocking services
+class ReactivePostServiceImplUpdateTest {
+  private StubUpstreamServer upstream;
+  private PostRepository postRepository;
+  private CacheManager cacheManager;
+  private ReactivePostServiceImpl postService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    upstream = StubUpstreamServer.start();
+    postRepository = mock(PostRepository.class);
+    when(postRepository.findById(5)).thenReturn(Optional.of(new Post(5, 1, "title", "body", 2)));
+    cacheManager = new ConcurrentMapCacheManager();
+
+    ExternalAPIServiceImpl externalAPIService =
+        ExternalAPIServiceImplTest.externalAPIService(upstream);
+    postService = new ReactivePostServiceImpl(postRepository, externalAPIService,
+        mock(PostOutboxService.class), mock(PostSyncService.class),
+        cacheManager, new LocalPostInvalidationBus(), new SimpleMeterRegistry(),
+        PostWriteMode.SYNC, Duration.ofSeconds(5), 1000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void updateOfLocalPostSendsOnlyThePutAndWritesOnlyTheChangedField() {
+    when(postRepository.updateTitleAndBody(5, "new title", null, 2)).thenReturn(1);
+
+    Post post = postService.updatePostById(5, new PostUpdateDTO("new title", null, 2)).block();
+
+    assertEquals(1, upstream.hits("/posts/5"));
+    assertEquals("new title", post.getTitle());
+    assertEquals("body", post.getBody());
+    assertEquals(3, post.getVersion());
+    assertEquals(post, cacheManager.getCache(CacheConfiguration.POSTS_CACHE).get(5).get());
+  }
+
+  @Test
+  void updateBasedOnOlderVersionIsRejectedBeforeExternalAPIIsCalled() {
+    assertThrows(PostVersionConflictException.class,
+        () -> postService.updatePostById(5, new PostUpdateDTO("new title", null, 1)).block());
+
+    assertEquals(0, upstream.hits("/posts/5"));
+    verify(postRepository, never()).updateTitleAndBody(any(), any(), any(), any());
+  }
+
+  @Test
+  void postChangedDuringUpdateIsRejectedAndEvictedWithoutPuttingToExternalAPI() {
+    when(postRepository.updateTitleAndBody(5, "new title", null, 2)).thenReturn(0);
+
+    assertThrows(PostVersionConflictException.class,
+        () -> postService.updatePostById(5, new PostUpdateDTO("new title", null, null)).block());
+
+    assertEquals(0, upstream.hits("/posts/5"));
+    assertNull(cacheManager.getCache(CacheConfiguration.POSTS_CACHE).get(5));
+  }
+
+  @Test
+  void updateRefusedByExternalAPIIsUndoneLocally() {
+    when(postRepository.updateTitleAndBody(5, "new title", null, 2)).thenReturn(1);
+    upstream.setErrorRate(1.0);
+
+    assertThrows(ExternalAPIErrorException.class,
+        () -> postService.updatePostById(5, new PostUpdateDTO("new title", null, 2)).block());
+
+    verify(postRepository).replaceTitleAndBody(5, "title", "body", 3);
+    assertNull(cacheManager.getCache(CacheConfiguration.POSTS_CACHE).get(5));
+  }
+}